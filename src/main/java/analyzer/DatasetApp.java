@@ -5,11 +5,13 @@ import analyzer.bugginess.BugLinker;
 import analyzer.csv.CsvDebugWriter;
 import analyzer.csv.CsvHandler;
 import analyzer.git.GitRepository;
+import analyzer.git.ReleaseContainmentIndex;
+import analyzer.git.ReleaseSnapshot;
 import analyzer.jira.GetReleaseInfo;
 import analyzer.jira.TicketParser;
 import analyzer.metrics.MethodMetricsExtractor;
 import analyzer.model.Commit;
-import analyzer.model.MethodInfo;
+import analyzer.model.MethodTable;
 import analyzer.model.Release;
 import analyzer.model.TicketInfo;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -44,8 +46,8 @@ public class DatasetApp {
 
         try {
 
-            // Lista dei metodi che verranno analizzati
-            List<MethodInfo> methods;
+            // Tabella dei metodi che verranno analizzati
+            MethodTable methods;
 
             // Recupera primo 33% release del progetto
             List<Release> datasetReleases = GetReleaseInfo.getDatasetReleases();
@@ -60,7 +62,7 @@ public class DatasetApp {
             GitRepository repo = new GitRepository(Configuration.getProjectPath());
             MethodMetricsExtractor extractor = new MethodMetricsExtractor(repo);
 
-            // Inizializza lista dei commit selezionati per ogni release (a cui fare checkout)
+            // Inizializza lista dei commit selezionati per ogni release
             List<Commit> selectedCommits = new ArrayList<>();
 
             if (Configuration.BASIC_DEBUG) Configuration.logger.info("Analisi delle metriche statiche avviata:");
@@ -93,15 +95,21 @@ public class DatasetApp {
                 c.setMessage(commit.getShortMessage());
                 selectedCommits.add(c);
 
-                // Fai il checkout al commit
-                repo.checkoutCommit(commit);
-
                 // Imposta la release in corso
                 extractor.setCurrentRelease(rel.getName());
                 extractor.setCurrentReleaseDate(rel.getReleaseDate());
 
                 // Analizza il progetto per la release corrente e calcola le metriche
-                extractor.analyzeProject(Configuration.getProjectPath(), rel);
+                if (Configuration.USE_RELEASE_SNAPSHOT) {
+                    // Legge l'albero del commit senza toccare il working tree
+                    try (ReleaseSnapshot snapshot = repo.openSnapshot(commit)) {
+                        extractor.analyzeSnapshot(snapshot, Configuration.getProjectPath(), rel);
+                    }
+                } else {
+                    // Fai il checkout al commit
+                    repo.checkoutCommit(commit);
+                    extractor.analyzeProject(Configuration.getProjectPath(), rel);
+                }
 
                 // Salva una versione CSV dei commit a cui facciamo il checkout in ogni release
                 CsvDebugWriter.writeCommitCsv(Configuration.getCommitDebugCsvPath(), selectedCommits);
@@ -110,30 +118,35 @@ public class DatasetApp {
             // Scrivi i risultati nel file CSV
             extractor.exportResults(Configuration.getOutputCsvPath());
 
-            // Chiude correttamente la connessione con la repository Git
-            repo.close();
-
             // Ottieni info metodi analizzati
-            methods = extractor.getAnalyzedMethods();
+            methods = extractor.getMethodTable();
 
             if (Configuration.BASIC_DEBUG) Configuration.logger.info("Inizio fase di etichettatura ...");
 
             // Estrai ticket da JIRA
             Map<String, TicketInfo> tickets = TicketParser.parseTicketsFromJira();
 
+            // Release complete + indice commit --> prima release che lo contiene (per ascendenza)
+            List<Release> allReleases = GetReleaseInfo.getAllReleases();
+            ReleaseContainmentIndex containment = repo.buildReleaseContainmentIndex(allReleases);
+
             // Collega commit ai ticket
             BugLinker linker = new BugLinker(repo);
             linker.linkCommitsToTickets(tickets);
-            linker.applyMissingCommitLinkageHeuristic(tickets);
+            linker.applyMissingCommitLinkageHeuristic(tickets, containment);
 
             // Etichetta i metodi usando tutti i dati a disposizione
-            List<Release> allReleases = GetReleaseInfo.getAllReleases();
             BugLabeler.labelMethods(methods, tickets, repo, allReleases);
 
             // Riscrivi CSV aggiornato
             CsvHandler csvHandler = new CsvHandler();
             csvHandler.writeCsv(Configuration.getOutputCsvPath(), methods);
 
+            if (Configuration.BASIC_DEBUG) Configuration.logger.info(repo.getDiffService().getStatistics());
+
+            // Chiude correttamente la connessione con la repository Git (dopo l'etichettatura, che la usa ancora)
+            repo.close();
+
             if (Configuration.BASIC_DEBUG) Configuration.logger.info("Analisi completata. File salvato in: " + Configuration.getOutputCsvPath());
 
         } catch (Exception e) {
@@ -3,6 +3,7 @@ package analyzer.bugginess;
 import analyzer.csv.CsvBugLabelerDebug;
 import analyzer.git.GitRepository;
 import analyzer.model.MethodInfo;
+import analyzer.model.MethodTable;
 import analyzer.model.TicketInfo;
 import analyzer.model.Release;
 import util.Configuration;
@@ -28,6 +29,21 @@ public class BugLabeler {
 
     // Etichettatura metodi buggy
     public static void labelMethods(List<MethodInfo> methods, Map<String, TicketInfo> tickets, GitRepository repo, List<Release> releases) {
+        // Release effettivamente presenti nel dataset dei metodi analizzati
+        Set<String> availableReleases = new HashSet<>();
+        for (MethodInfo m : methods) {
+            availableReleases.add(m.getReleaseId());
+        }
+        labelMethods(methods, availableReleases, tickets, repo, releases);
+    }
+
+    // Etichettatura direttamente sulla tabella: le release vengono dal suo dizionario, la bugginess finisce nelle sue colonne
+    public static void labelMethods(MethodTable table, Map<String, TicketInfo> tickets, GitRepository repo, List<Release> releases) {
+        labelMethods(table.asList(), new HashSet<>(table.getReleaseNames()), tickets, repo, releases);
+    }
+
+    private static void labelMethods(List<MethodInfo> methods, Set<String> availableReleases,
+                                     Map<String, TicketInfo> tickets, GitRepository repo, List<Release> releases) {
 
         int buggyFromAV = 0;
         int buggyFromProportion = 0;
@@ -52,7 +68,7 @@ public class BugLabeler {
             Set<String> buggyReleases = estimateBuggyReleases(ticket, estimator);
 
             // Skip dei ticket non preocessabile
-            if (!isProcessable(ticket, buggyReleases, methods)) {
+            if (!isProcessable(ticket, buggyReleases, availableReleases)) {
                 if (Configuration.LABELING_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
                     Configuration.logger.info(String.format("%s%s: ticket ignorato (non processabile)", TICKET_PREFIX, ticket.getId()));
                 }
@@ -190,19 +206,14 @@ public class BugLabeler {
     - ha commit collegati
     - ha almeno una buggyRelease associata
      */
-    private static boolean isProcessable(TicketInfo ticket, Set<String> buggyReleases, List<MethodInfo> methods) {
+    private static boolean isProcessable(TicketInfo ticket, Set<String> buggyReleases, Set<String> availableReleases) {
         if (ticket.getFixVersion() == null || ticket.getCommitIds().isEmpty()) return false;
         if (buggyReleases.isEmpty()) return false;
-        return filterValidBuggyReleases(ticket, buggyReleases, methods);
+        return filterValidBuggyReleases(ticket, buggyReleases, availableReleases);
     }
 
-    private static boolean filterValidBuggyReleases(TicketInfo ticket, Set<String> buggyReleases, List<MethodInfo> methods) {
-        // Crea il set di tutte le release effettivamente presenti nel dataset dei metodi analizzati
-        Set<String> availableReleases = new HashSet<>();
-        for (MethodInfo m : methods) {
-            availableReleases.add(m.getReleaseId());
-        }
-
+    // availableReleases: release presenti nel dataset dei metodi analizzati (calcolate una volta sola)
+    private static boolean filterValidBuggyReleases(TicketInfo ticket, Set<String> buggyReleases, Set<String> availableReleases) {
         // Rimuove le buggyReleases che non sono presenti tra le release disponibili
         buggyReleases.retainAll(availableReleases);
 
@@ -4,11 +4,11 @@ import analyzer.csv.CsvTicketCommitWriter;
 import analyzer.exception.GitOperationException;
 import analyzer.exception.TicketLinkageException;
 import analyzer.git.GitRepository;
+import analyzer.git.ReleaseContainmentIndex;
 import analyzer.model.TicketInfo;
 import util.Configuration;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.slf4j.LoggerFactory;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -51,14 +51,15 @@ public class BugLinker {
                 String ticketId = entry.getKey(); // ottieni id (es. BOOKKEEPER-123)
                 TicketInfo ticket = entry.getValue(); // ottieni info ticket
 
-                //  Cerca tutti i commit il cui messaggio contiene esattamente ticketId
-                Iterable<RevCommit> commits = repo.getCommitsByMessageContaining(ticketId);
+                //  Cerca tutti i commit il cui messaggio cita ticketId (lookup sull'indice invertito)
+                List<RevCommit> commits = repo.getCommitsForTicket(ticketId);
 
                 for (RevCommit commit : commits) {
 
-                    // Collega commit al ticket
+                    // Collega commit al ticket e ne registra l'autore
                     String commitHash = commit.getName();
                     ticket.addCommitId(commitHash);
+                    ticket.addCommitAuthor(commit.getAuthorIdent().getName());
 
                     // Salva i nomi dei file toccati nel commit nel TicketInfo
                     Set<String> javaFiles = repo.getTouchedJavaFiles(commit);
@@ -78,6 +79,14 @@ public class BugLinker {
     sono stati collegati come contributi probabili alla fix
      */
     public void applyMissingCommitLinkageHeuristic(Map<String, TicketInfo> tickets) throws TicketLinkageException {
+        applyMissingCommitLinkageHeuristic(tickets, null);
+    }
+
+    /*
+    Come sopra, ma se è disponibile l'indice di contenimento scarta i candidati
+    che non sono contenuti nella release FV (verifica per ascendenza, non per data).
+     */
+    public void applyMissingCommitLinkageHeuristic(Map<String, TicketInfo> tickets, ReleaseContainmentIndex containment) throws TicketLinkageException {
 
         try {
             for (TicketInfo ticket : tickets.values()) {
@@ -91,6 +100,14 @@ public class BugLinker {
                 // Ottiene tutti i commit avvenuti tra la data di apertura e la data di fix del ticket
                 List<RevCommit> candidateCommits = repo.getCommitsBetweenDates(start, end);
 
+                // Tiene solo i commit effettivamente entrati nella FV (o in una release precedente)
+                int fvOrdinal = containment == null ? -1 : containment.getOrdinal(ticket.getFixVersionName());
+                if (fvOrdinal != -1) {
+                    candidateCommits = candidateCommits.stream()
+                            .filter(c -> containment.isContainedIn(c, fvOrdinal))
+                            .toList();
+                }
+
                 matchingAuthor(candidateCommits, ticket);
             }
         } catch (Exception e) {
@@ -98,25 +115,32 @@ public class BugLinker {
         }
     }
 
-    // Verifica se l'autore è lo stesso e fa altri check
-    public void matchingAuthor(List<RevCommit> candidateCommits, TicketInfo ticket) throws GitOperationException, IOException {
+    /*
+    Verifica se l'autore è lo stesso e fa altri check.
+    Autori e file del ticket sono set precalcolati: ogni candidato costa un lookup per l'autore
+    e, solo se l'autore combacia, un lookup per ciascun file toccato.
+     */
+    public void matchingAuthor(List<RevCommit> candidateCommits, TicketInfo ticket) throws GitOperationException {
         for (RevCommit commit : candidateCommits) {
             // Se già collegato via messaggio, salta
-            if (ticket.getCommitIds().contains(commit.getName())) continue;
+            if (ticket.containsCommitId(commit.getName())) continue;
+
+            // Verifica se autore combacia con commit già collegato
+            String author = commit.getAuthorIdent().getName();
+            if (!ticket.hasCommitAuthor(author)) continue;
+
+            // Se il changed-path filter esclude tutti i file del ticket, il diff del commit non serve
+            if (!repo.getDiffService().mightChangeAny(commit, ticket.getFixedFiles())) continue;
 
             // Recupera i file toccati da questo commit
             Set<String> touchedFiles = repo.getTouchedJavaFiles(commit);
 
             for (String file : touchedFiles) {
-                // Verifica se il  file toccato dal commit è uno dei file già associati al ticket
-                boolean isFileMatch = ticket.getFixedFiles().contains(file);
-
-                // Verifica se autore combacia con commit già collegato
-                boolean isAuthorMatch = repo.isAuthorInTicket(commit, ticket);
-
-                // Se entrambi i match sono veri collega il commit al ticket, anche senza ID ticket nel messaggio
-                if (isFileMatch && isAuthorMatch) {
+                // Se il file toccato dal commit è uno dei file già associati al ticket
+                // collega il commit al ticket, anche senza ID ticket nel messaggio
+                if (ticket.containsFixedFile(file)) {
                     ticket.addCommitId(commit.getName());
+                    ticket.addCommitAuthor(author);
                     for (String f : touchedFiles) {
                         ticket.addFixedFile(f);
                     }
@@ -123,11 +123,7 @@ public class ProportionEstimator {
     }
 
     public String normalizeVersionName(String name) {
-        if (name == null) return null;
-        if (name.matches("\\d+\\.\\d+")) {
-            return name + ".0";
-        }
-        return name;
+        return Release.normalizeVersionName(name);
     }
 
     private int findClosestReleaseBefore(LocalDate targetDate) {
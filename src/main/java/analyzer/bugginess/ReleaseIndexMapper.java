@@ -14,7 +14,7 @@ public class ReleaseIndexMapper {
     public ReleaseIndexMapper(List<Release> orderedReleases) {
         for (int i = 0; i < orderedReleases.size(); i++) {
             String rawName = orderedReleases.get(i).getName();
-            String name = normalizeVersionName(rawName);
+            String name = Release.normalizeVersionName(rawName);
             releaseNameToIndex.put(name, i);
             indexToReleaseName.put(i, name);
 
@@ -35,12 +35,4 @@ public class ReleaseIndexMapper {
         return releaseNameToIndex.size();
     }
 
-    private String normalizeVersionName(String name) {
-        if (name == null) return null;
-        if (name.matches("\\d+\\.\\d+")) {
-            return name + ".0";
-        }
-        return name;
-    }
-
 }
@@ -1,54 +1,52 @@
 package analyzer.csv;
 
 import analyzer.model.MethodInfo;
+import analyzer.model.MethodTable;
 import util.Configuration;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class CsvHandler {
 
-    private static final String[] HEADER = {
-            "Project", "Method", "ReleaseID", "LOC", "CyclomaticComplexity", "CognitiveComplexity", "Number of Smells", "ParameterCount", "NestingDepth", "StatementCount",
-            "LocalVariableCount", "ReturnTypeComplexity", "MethodHistories",
-            "StmtAdded", "StmtDeleted", "Churn", "DistinctAuthors", "Bugginess"
-    };
+    /*
+    Colonne del dataset: le colonne originali nelle loro posizioni (vedi DatasetLayout), poi le metriche statiche
+    aggiunte dopo (CommentLines e quelle dei MetricProvider) e infine Bugginess, che resta l'ultima (la classe per Weka).
+     */
+    private static final int[] ORIGINAL_COLUMNS = DatasetLayout.getOriginalColumns();
+    private static final int[] ADDED_COLUMNS = DatasetLayout.getAddedColumns();
+    private static final List<String> HEADER = buildHeader();
 
-    public void writeCsv(String outputPath, List<MethodInfo> methods) {
-        // 1. Prepariamo il file e creiamo le cartelle se mancano
-        java.io.File file = new java.io.File(outputPath);
-        java.io.File parent = file.getParentFile();
-
-        if (parent != null && !parent.exists()) {
-            parent.mkdirs();
-        }
-
-        // 2. Usiamo l'oggetto 'file' invece della stringa 'outputPath'
-        try (FileWriter writer = new FileWriter(file)) {
-
-            // Scrive l'intestazione
-            writer.append(String.join(";", HEADER));
-            writer.append("\n");
+    private static List<String> buildHeader() {
+        List<String> header = new ArrayList<>(List.of("Project", "Method", "ReleaseID"));
+        header.addAll(DatasetLayout.namesOf(ORIGINAL_COLUMNS));
+        header.addAll(List.of("MethodHistories", "StmtAdded", "StmtDeleted", "Churn", "DistinctAuthors"));
+        header.addAll(DatasetLayout.namesOf(ADDED_COLUMNS));
+        header.add("Bugginess");
+        return List.copyOf(header);
+    }
 
+    public void writeCsv(String outputPath, List<MethodInfo> methods) {
+        try (FileWriter writer = openCsv(outputPath)) {
             for (MethodInfo method : methods) {
                 writer.append(method.getProjectName()).append(";");
                 writer.append(method.getMethodName()).append(";");
                 writer.append(method.getReleaseId()).append(";");
-                writer.append(String.valueOf(method.getLoc())).append(";");
-                writer.append(String.valueOf(method.getCyclomaticComplexity())).append(";");
-                writer.append(String.valueOf(method.getCognitiveComplexity())).append(";");
-                writer.append(String.valueOf(method.getNumberOfSmells())).append(";");
-                writer.append(String.valueOf(method.getParameterCount())).append(";");
-                writer.append(String.valueOf(method.getNestingDepth())).append(";");
-                writer.append(String.valueOf(method.getStatementCount())).append(";");
-                writer.append(String.valueOf(method.getLocalVariableCount())).append(";");
-                writer.append(String.valueOf(method.getReturnTypeComplexity())).append(";");
+                int[] values = method.getMetricValues();
+                for (int column : ORIGINAL_COLUMNS) {
+                    int value = column == DatasetLayout.NUMBER_OF_SMELLS ? method.getNumberOfSmells() : values[column];
+                    writer.append(String.valueOf(value)).append(";");
+                }
                 writer.append(String.valueOf(method.getMethodHistories())).append(";");
                 writer.append(String.valueOf(method.getStmtAdded())).append(";");
                 writer.append(String.valueOf(method.getStmtDeleted())).append(";");
                 writer.append(String.valueOf(method.getChurn())).append(";");
                 writer.append(String.valueOf(method.getDistinctAuthors())).append(";");
+                for (int column : ADDED_COLUMNS) {
+                    writer.append(String.valueOf(values[column])).append(";");
+                }
                 writer.append(method.isBugginess() ? "Yes" : "No");
                 writer.append("\n");
             }
@@ -59,5 +57,48 @@ public class CsvHandler {
         }
     }
 
+    // Stesso CSV, letto direttamente dalle colonne della tabella (senza viste MethodInfo)
+    public void writeCsv(String outputPath, MethodTable table) {
+        try (FileWriter writer = openCsv(outputPath)) {
+            for (int row = 0; row < table.size(); row++) {
+                writer.append(table.getProjectName(row)).append(";");
+                writer.append(table.getMethodName(row)).append(";");
+                writer.append(table.getReleaseId(row)).append(";");
+                for (int column : ORIGINAL_COLUMNS) {
+                    int value = column == DatasetLayout.NUMBER_OF_SMELLS ? table.getNumberOfSmells(row) : table.getMetric(column, row);
+                    writer.append(String.valueOf(value)).append(";");
+                }
+                writer.append(String.valueOf(table.getMethodHistories(row))).append(";");
+                writer.append(String.valueOf(table.getStmtAdded(row))).append(";");
+                writer.append(String.valueOf(table.getStmtDeleted(row))).append(";");
+                writer.append(String.valueOf(table.getChurn(row))).append(";");
+                writer.append(String.valueOf(table.getDistinctAuthors(row))).append(";");
+                for (int column : ADDED_COLUMNS) {
+                    writer.append(String.valueOf(table.getMetric(column, row))).append(";");
+                }
+                writer.append(table.isBugginess(row) ? "Yes" : "No");
+                writer.append("\n");
+            }
+
+        } catch (IOException e) {
+            Configuration.logger.severe("Errore critico nella scrittura del CSV: " + e.getMessage());
+        }
+    }
+
+    // Crea il file (e le cartelle se mancano) e scrive l'intestazione
+    private static FileWriter openCsv(String outputPath) throws IOException {
+        java.io.File file = new java.io.File(outputPath);
+        java.io.File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        FileWriter writer = new FileWriter(file);
+        writer.append(String.join(";", HEADER));
+        writer.append("\n");
+        return writer;
+    }
+
 }
 
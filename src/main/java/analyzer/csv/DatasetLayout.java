@@ -0,0 +1,62 @@
+package analyzer.csv;
+
+import analyzer.metrics.MetricRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Ordine delle colonne di metriche statiche e smell nei CSV (dataset e MetricAnalyzerEngine).
+- colonne originali: nelle loro posizioni storiche, con "Number of Smells" tra CognitiveComplexity e ParameterCount
+- colonne aggiunte: le metriche registrate dopo (CommentLines e quelle dei MetricProvider), nell'ordine di MetricRegistry;
+  ogni CSV le accoda dopo tutte le sue colonne originali
+Così chi legge le colonne per posizione (ARFF, modelli già addestrati) trova le vecchie colonne dove erano.
+ */
+public final class DatasetLayout {
+
+    // Segnaposto per la colonna "Number of Smells", che non è una metrica di MetricRegistry
+    public static final int NUMBER_OF_SMELLS = -1;
+
+    private static final String NUMBER_OF_SMELLS_NAME = "Number of Smells";
+
+    private static final int[] ORIGINAL_COLUMNS = {
+            MetricRegistry.LOC, MetricRegistry.CYCLOMATIC_COMPLEXITY, MetricRegistry.COGNITIVE_COMPLEXITY,
+            NUMBER_OF_SMELLS, MetricRegistry.PARAMETER_COUNT, MetricRegistry.NESTING_DEPTH,
+            MetricRegistry.STATEMENT_COUNT, MetricRegistry.LOCAL_VARIABLE_COUNT, MetricRegistry.RETURN_TYPE_COMPLEXITY
+    };
+
+    private static final int[] ADDED_COLUMNS = buildAddedColumns();
+
+    private DatasetLayout() {}
+
+    private static int[] buildAddedColumns() {
+        boolean[] original = new boolean[MetricRegistry.size()];
+        for (int column : ORIGINAL_COLUMNS) {
+            if (column != NUMBER_OF_SMELLS) original[column] = true;
+        }
+        List<Integer> added = new ArrayList<>();
+        for (int metric = 0; metric < original.length; metric++) {
+            if (!original[metric]) added.add(metric);
+        }
+        return added.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Indici di MetricRegistry delle colonne originali (NUMBER_OF_SMELLS per la colonna degli smell)
+    public static int[] getOriginalColumns() {
+        return ORIGINAL_COLUMNS.clone();
+    }
+
+    // Indici di MetricRegistry delle metriche aggiunte dopo, da accodare
+    public static int[] getAddedColumns() {
+        return ADDED_COLUMNS.clone();
+    }
+
+    // Nomi delle colonne indicate (stessi indici di getOriginalColumns/getAddedColumns)
+    public static List<String> namesOf(int[] columns) {
+        List<String> names = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            names.add(column == NUMBER_OF_SMELLS ? NUMBER_OF_SMELLS_NAME : MetricRegistry.getNames().get(column));
+        }
+        return names;
+    }
+}
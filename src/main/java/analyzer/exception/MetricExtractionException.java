@@ -0,0 +1,8 @@
+package analyzer.exception;
+
+public class MetricExtractionException extends RuntimeException {
+
+    public MetricExtractionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,158 @@
+package analyzer.git;
+
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Blame dei file di una release: per ogni riga, la posizione (in CommitHistoryIndex) del commit che l'ha scritta.
+- i risultati della release precedente restano in memoria per path, insieme all'id del blob
+- blob invariato: il blame precedente vale così com'è
+- blob cambiato: le righe invariate (diff tra il vecchio e il nuovo blob) riprendono il commit di prima,
+  il BlameGenerator parte dal commit di release e si ferma appena ha attribuito le righe nuove,
+  che per costruzione sono state scritte dopo la release precedente
+- file nuovo: blame completo
+Le release vanno interrogate in ordine: al primo blame con un commit di release diverso i risultati
+della release corrente diventano quelli "precedenti".
+ */
+public final class BlameService {
+
+    private final Repository repo;
+    private final CommitHistoryIndex history;
+    private final DiffAlgorithm diffAlgorithm = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+
+    private ObjectId currentRelease;
+    private Map<String, BlamedFile> previousByPath = new HashMap<>();
+    private Map<String, BlamedFile> currentByPath = new HashMap<>();
+
+    private long reused;
+    private long incremental;
+    private long full;
+    private long blamedLines;
+
+    BlameService(Repository repo, CommitHistoryIndex history) {
+        this.repo = repo;
+        this.history = history;
+    }
+
+    /*
+    Commit di ogni riga del file (0-based) nella release, come posizione in CommitHistoryIndex.
+    -1 per le righe che il blame non attribuisce a un commit dell'indice.
+    L'array è condiviso con la cache: non va modificato.
+     */
+    public synchronized int[] blame(RevCommit releaseCommit, String path, ObjectId blobId) throws IOException {
+        if (!releaseCommit.equals(currentRelease)) {
+            previousByPath = currentByPath;
+            currentByPath = new HashMap<>();
+            currentRelease = releaseCommit.copy();
+        }
+
+        BlamedFile done = currentByPath.get(path);
+        if (done != null && done.blobId.equals(blobId)) return done.lineCommits;
+
+        BlamedFile previous = previousByPath.get(path);
+        int[] lineCommits;
+        if (previous != null && previous.blobId.equals(blobId)) {
+            reused++;
+            lineCommits = previous.lineCommits;
+        } else {
+            RawText text = new RawText(readBlob(blobId));
+            lineCommits = new int[text.size()];
+            Arrays.fill(lineCommits, -1);
+            BitSet pending = new BitSet(text.size());
+
+            if (previous == null) {
+                full++;
+                pending.set(0, text.size());
+            } else {
+                incremental++;
+                carryUnchangedLines(previous, text, lineCommits, pending);
+            }
+            runBlame(releaseCommit, path, lineCommits, pending);
+        }
+
+        currentByPath.put(path, new BlamedFile(blobId.copy(), lineCommits));
+        return lineCommits;
+    }
+
+    // Copia il commit delle righe invariate rispetto al blob precedente e segna come da attribuire le altre
+    private void carryUnchangedLines(BlamedFile previous, RawText text, int[] lineCommits, BitSet pending) throws IOException {
+        RawText before = new RawText(readBlob(previous.blobId));
+        EditList edits = diffAlgorithm.diff(RawTextComparator.DEFAULT, before, text);
+
+        int a = 0;
+        int b = 0;
+        for (Edit edit : edits) {
+            while (b < edit.getBeginB()) {
+                lineCommits[b++] = previous.lineCommits[a++];
+            }
+            pending.set(edit.getBeginB(), edit.getEndB());
+            a = edit.getEndA();
+            b = edit.getEndB();
+        }
+        while (b < lineCommits.length) {
+            lineCommits[b++] = previous.lineCommits[a++];
+        }
+    }
+
+    // Blame dal commit di release, interrotto quando tutte le righe pending sono attribuite
+    private void runBlame(RevCommit releaseCommit, String path, int[] lineCommits, BitSet pending) throws IOException {
+        int toBlame = pending.cardinality();
+        if (toBlame == 0) return;
+        int remaining = toBlame;
+
+        try (BlameGenerator generator = new BlameGenerator(repo, path)) {
+            generator.setTextComparator(RawTextComparator.DEFAULT);
+            generator.setDiffAlgorithm(diffAlgorithm);
+            generator.setFollowFileRenames(true);
+            generator.push(null, releaseCommit);
+
+            while (remaining > 0 && generator.next()) {
+                RevCommit source = generator.getSourceCommit();
+                int position = source == null ? -1 : history.indexOf(source);
+                int end = Math.min(generator.getResultEnd(), lineCommits.length);
+                for (int line = generator.getResultStart(); line < end; line++) {
+                    if (pending.get(line)) {
+                        pending.clear(line);
+                        lineCommits[line] = position;
+                        remaining--;
+                    }
+                }
+            }
+        }
+        blamedLines += toBlame - remaining;
+    }
+
+    private byte[] readBlob(ObjectId blobId) throws IOException {
+        return repo.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    public synchronized String getStatistics() {
+        return String.format("Blame: %d file riusati, %d incrementali, %d completi, %d righe attribuite dal blame",
+                reused, incremental, full, blamedLines);
+    }
+
+    // Blame di un file in una release
+    private static final class BlamedFile {
+        private final ObjectId blobId;
+        private final int[] lineCommits;
+
+        private BlamedFile(ObjectId blobId, int[] lineCommits) {
+            this.blobId = blobId;
+            this.lineCommits = lineCommits;
+        }
+    }
+}
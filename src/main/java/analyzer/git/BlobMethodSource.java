@@ -0,0 +1,72 @@
+package analyzer.git;
+
+import analyzer.model.MethodSource;
+import org.eclipse.jgit.lib.ObjectId;
+import util.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+/*
+Codice di un metodo identificato da blob del file + intervallo di righe (1-based, estremi inclusi).
+In memoria restano solo l'id del blob (condiviso dai metodi dello stesso file) e due interi;
+il testo viene riletto dall'object database solo quando serve.
+ */
+public final class BlobMethodSource implements MethodSource {
+
+    private final GitRepository repo;
+    private final ObjectId blobId;
+    private final int startLine;
+    private final int endLine;
+
+    public BlobMethodSource(GitRepository repo, ObjectId blobId, int startLine, int endLine) {
+        this.repo = repo;
+        this.blobId = blobId;
+        this.startLine = startLine;
+        this.endLine = endLine;
+    }
+
+    @Override
+    public String load() {
+        if (startLine < 1 || endLine < startLine) return null;
+        try {
+            String text = new String(repo.readBlob(blobId), StandardCharsets.UTF_8);
+            return extractLines(text, startLine, endLine);
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Codice del metodo non disponibile: blob " + blobId.name(), e);
+            return null;
+        }
+    }
+
+    // Righe [startLine, endLine] con gli stessi terminatori riconosciuti da JavaParser (\n, \r\n, \r)
+    public static String extractLines(String text, int startLine, int endLine) {
+        if (startLine < 1 || endLine < startLine) return null;
+        int line = 1;
+        int from = -1;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (line == startLine && from == -1) from = i;
+            if (i == length) break;
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (line == endLine) return text.substring(from, i);
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') i++;
+                line++;
+            }
+        }
+        return from == -1 ? null : text.substring(from);
+    }
+
+    public ObjectId getBlobId() {
+        return blobId;
+    }
+
+    public int getStartLine() {
+        return startLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+}
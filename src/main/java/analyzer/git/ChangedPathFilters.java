@@ -0,0 +1,212 @@
+package analyzer.git;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Bloom filter per commit sui path modificati, sul modello dei changed-path filter del commit-graph di git.
+- ogni filtro contiene i path .java modificati e tutte le loro directory padre
+- 10 bit per elemento, 7 funzioni hash (murmur3 con doppio hashing)
+- un commit con troppi path modificati non ha filtro: la risposta è sempre "forse"
+Una risposta negativa è certa, quindi chi chiede il diff di un path può saltare la scansione degli alberi:
+- CommitDiffService.getEdits per un path che il commit non modifica (etichettatura: commit di fix x file del ticket)
+- CommitDiffService.mightChangeAny prima di calcolare i file toccati da un candidato dell'euristica di linkage
+I filtri vengono salvati accanto al repository e ricaricati all'avvio.
+ */
+public final class ChangedPathFilters {
+
+    private static final int MAGIC = 0x49535732; // "ISW2"
+    private static final int VERSION = 1;
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int NUM_HASHES = 7;
+    private static final int MAX_CHANGED_PATHS = 512;
+    private static final int SEED_1 = 0x293ae76f;
+    private static final int SEED_2 = 0x7e646e2c;
+
+    private static final long[] TOO_LARGE = new long[0]; // marcatore: commit senza filtro
+
+    private final Map<ObjectId, long[]> filters = new HashMap<>();
+    private boolean dirty;
+
+    // Filtri vuoti: ogni query risponde "forse"
+    public static ChangedPathFilters empty() {
+        return new ChangedPathFilters();
+    }
+
+    // Ricarica i filtri salvati; se il file non esiste restituisce un insieme vuoto
+    public static ChangedPathFilters load(File file) throws IOException {
+        ChangedPathFilters loaded = new ChangedPathFilters();
+        if (!file.isFile()) return loaded;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Formato filtri non riconosciuto: " + file);
+            }
+            int count = in.readInt();
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < count; i++) {
+                in.readFully(rawId);
+                long[] bits = new long[in.readInt()];
+                for (int w = 0; w < bits.length; w++) {
+                    bits[w] = in.readLong();
+                }
+                loaded.filters.put(ObjectId.fromRaw(rawId), bits.length == 0 ? TOO_LARGE : bits);
+            }
+        }
+        return loaded;
+    }
+
+    // Salva i filtri (scrittura su file temporaneo + rename, per non lasciare file troncati)
+    public synchronized void save(File file) throws IOException {
+        if (!dirty) return;
+
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(filters.size());
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            for (Map.Entry<ObjectId, long[]> entry : filters.entrySet()) {
+                entry.getKey().copyRawTo(rawId, 0);
+                out.write(rawId);
+                out.writeInt(entry.getValue().length);
+                for (long word : entry.getValue()) {
+                    out.writeLong(word);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    public synchronized boolean contains(AnyObjectId commit) {
+        return filters.containsKey(commit);
+    }
+
+    // Registra il filtro di un commit a partire dai path che modifica
+    public synchronized void add(AnyObjectId commit, Collection<String> changedPaths) {
+        Set<String> keys = new HashSet<>();
+        for (String path : changedPaths) {
+            addWithParents(path, keys);
+        }
+
+        if (keys.size() > MAX_CHANGED_PATHS) {
+            filters.put(commit.copy(), TOO_LARGE);
+        } else {
+            int numBits = Math.max(64, keys.size() * BITS_PER_ENTRY);
+            long[] bits = new long[(numBits + 63) / 64];
+            for (String key : keys) {
+                setBits(bits, key);
+            }
+            filters.put(commit.copy(), bits);
+        }
+        dirty = true;
+    }
+
+    // false = il commit sicuramente non modifica il path; true = forse (o filtro assente)
+    public synchronized boolean mightChange(AnyObjectId commit, String path) {
+        long[] bits = filters.get(commit);
+        if (bits == null || bits == TOO_LARGE) return true;
+
+        byte[] data = path.getBytes(StandardCharsets.UTF_8);
+        int h1 = murmur3(SEED_1, data);
+        int h2 = murmur3(SEED_2, data);
+        long numBits = bits.length * 64L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % numBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return filters.size();
+    }
+
+    // Aggiunge il path e tutte le directory che lo contengono (a/b/C.java, a/b, a)
+    private static void addWithParents(String path, Set<String> keys) {
+        String current = path;
+        while (keys.add(current)) {
+            int slash = current.lastIndexOf('/');
+            if (slash <= 0) break;
+            current = current.substring(0, slash);
+        }
+    }
+
+    private static void setBits(long[] bits, String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        int h1 = murmur3(SEED_1, data);
+        int h2 = murmur3(SEED_2, data);
+        long numBits = bits.length * 64L;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % numBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    // MurmurHash3 a 32 bit (x86), la stessa famiglia di hash usata da git per i changed-path filter
+    private static int murmur3(int seed, byte[] data) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h = seed;
+        int len = data.length;
+        int blocks = len / 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int k = (data[i * 4] & 0xff)
+                    | (data[i * 4 + 1] & 0xff) << 8
+                    | (data[i * 4 + 2] & 0xff) << 16
+                    | (data[i * 4 + 3] & 0xff) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+
+        // Coda di 1-3 byte: stesso risultato dello switch con fall-through della versione di riferimento
+        int tail = blocks * 4;
+        int remaining = len & 3;
+        if (remaining > 0) {
+            int k = 0;
+            if (remaining == 3) k ^= (data[tail + 2] & 0xff) << 16;
+            if (remaining >= 2) k ^= (data[tail + 1] & 0xff) << 8;
+            k ^= data[tail] & 0xff;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+        }
+
+        h ^= len;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,255 @@
+package analyzer.git;
+
+import org.eclipse.jgit.api.errors.CanceledException;
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import util.Configuration;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Servizio unico per il diff tra un commit e il suo primo genitore.
+- un solo DiffFormatter con RawTextComparator.DEFAULT, come prima in ogni consumer
+- con JAVA_ONLY_DIFF il tree walk visita solo i file .java fuori da /test/ e /target/
+  e la rename detection parte solo se il risultato filtrato contiene almeno un ADD e un DELETE
+- per ogni commit calcola una volta la lista di DiffEntry e, su richiesta, l'EditList di ogni path
+- i risultati stanno in una cache LRU limitata al numero di commit indicato; le EditList restituite
+  sono copie, chi le riceve può modificarle senza toccare la cache
+- se il changed-path filter esclude il path, getEdits risponde senza scansionare gli alberi;
+  mightChangeAny fa lo stesso controllo per un insieme di path, prima di chiedere tutte le entry del commit
+I root commit restituiscono un diff vuoto: tutti i consumer li saltano.
+Per un path il diff con il primo genitore coincide con quello del log filtrato per path (git log -- path):
+lì il genitore viene riscritto saltando solo commit che lasciano il file invariato, quindi il contenuto
+del file nel genitore riscritto è lo stesso che nel primo genitore.
+ */
+public final class CommitDiffService {
+
+    private final Repository repo;
+    private final DiffFormatter formatter;
+    private final Map<ObjectId, CommitDiff> cache;
+    private final ChangedPathFilters filters;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long filterSkips;
+    private long renameScans;
+
+    CommitDiffService(Repository repo, int maxCachedCommits, ChangedPathFilters filters) {
+        this.repo = repo;
+        this.filters = filters;
+        this.formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        this.formatter.setRepository(repo);
+        this.formatter.setDiffComparator(RawTextComparator.DEFAULT);
+        if (Configuration.JAVA_ONLY_DIFF) {
+            // Le rinomine vengono cercate a parte, solo quando servono (vedi detectRenames)
+            this.formatter.setPathFilter(JavaSourceFilter.INSTANCE);
+        } else {
+            this.formatter.setDetectRenames(true);
+        }
+
+        // LinkedHashMap in access-order: l'elemento più vecchio è il meno usato di recente
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, CommitDiff> eldest) {
+                if (size() > maxCachedCommits) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // File modificati dal commit rispetto al primo genitore
+    public synchronized List<DiffEntry> getEntries(RevCommit commit) throws IOException {
+        return lookup(commit).entries;
+    }
+
+    // Edit del file indicato (path nella nuova versione); lista vuota se il commit non lo modifica
+    public synchronized EditList getEdits(RevCommit commit, String newPath) throws IOException {
+        // I filtri coprono solo i file .java: per gli altri path non si può escludere nulla
+        if (newPath.endsWith(".java") && !cache.containsKey(commit) && !filters.mightChange(commit, newPath)) {
+            filterSkips++;
+            return new EditList();
+        }
+        CommitDiff diff = lookup(commit);
+        EditList edits = diff.editsByPath.get(newPath);
+        if (edits == null) {
+            DiffEntry entry = diff.entriesByPath.get(newPath);
+            if (entry == null) return new EditList();
+            edits = formatter.toFileHeader(entry).toEditList();
+            diff.editsByPath.put(newPath, edits);
+        }
+        return copyOf(edits);
+    }
+
+    // false = il commit sicuramente non modifica nessuno dei path (diff non calcolato); true = forse
+    public synchronized boolean mightChangeAny(RevCommit commit, Collection<String> newPaths) {
+        if (cache.containsKey(commit)) return true;
+        for (String path : newPaths) {
+            // I filtri coprono solo i file .java: per gli altri path non si può escludere nulla
+            if (!path.endsWith(".java") || filters.mightChange(commit, path)) return true;
+        }
+        filterSkips++;
+        return false;
+    }
+
+    // Copia profonda: anche gli Edit sono modificabili
+    private static EditList copyOf(EditList edits) {
+        EditList copy = new EditList();
+        for (Edit edit : edits) {
+            copy.add(new Edit(edit.getBeginA(), edit.getEndA(), edit.getBeginB(), edit.getEndB()));
+        }
+        return copy;
+    }
+
+    private CommitDiff lookup(RevCommit commit) throws IOException {
+        CommitDiff diff = cache.get(commit);
+        if (diff != null) {
+            hits++;
+            return diff;
+        }
+        misses++;
+        diff = compute(commit);
+        cache.put(commit.copy(), diff);
+        return diff;
+    }
+
+    private CommitDiff compute(RevCommit commit) throws IOException {
+        if (commit.getParentCount() == 0) {
+            return new CommitDiff(Collections.emptyList());
+        }
+        try (RevWalk walk = new RevWalk(repo)) {
+            RevCommit parsed = walk.parseCommit(commit);
+            RevCommit parent = walk.parseCommit(parsed.getParent(0));
+            List<DiffEntry> entries = formatter.scan(parent.getTree(), parsed.getTree());
+            if (Configuration.JAVA_ONLY_DIFF) {
+                entries = detectRenames(entries, walk.getObjectReader());
+            }
+            return new CommitDiff(entries);
+        }
+    }
+
+    // Rename detection sul diff già filtrato: senza almeno una coppia ADD/DELETE non c'è nulla da accoppiare
+    private List<DiffEntry> detectRenames(List<DiffEntry> entries, ObjectReader reader) throws IOException {
+        boolean added = false;
+        boolean deleted = false;
+        for (DiffEntry entry : entries) {
+            added |= entry.getChangeType() == DiffEntry.ChangeType.ADD;
+            deleted |= entry.getChangeType() == DiffEntry.ChangeType.DELETE;
+        }
+        if (!added || !deleted) return entries;
+
+        renameScans++;
+        RenameDetector detector = new RenameDetector(reader, repo.getConfig().get(DiffConfig.KEY));
+        detector.setRenameLimit(Configuration.DIFF_RENAME_LIMIT);
+        detector.addAll(entries);
+        try {
+            return detector.compute(reader, NullProgressMonitor.INSTANCE);
+        } catch (CanceledException e) {
+            // NullProgressMonitor non annulla mai: non dovrebbe succedere
+            throw new IOException("Rename detection interrotta", e);
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getFilterSkipCount() {
+        return filterSkips;
+    }
+
+    public synchronized String getStatistics() {
+        long total = hits + misses;
+        double hitRate = total == 0 ? 0 : (100.0 * hits) / total;
+        return String.format("Cache diff: %d hit, %d miss (%.1f%% hit), %d eviction, %d commit in cache, %d diff evitati dai changed-path filter, %d rename detection",
+                hits, misses, hitRate, evictions, cache.size(), filterSkips, renameScans);
+    }
+
+    public synchronized void close() {
+        cache.clear();
+        formatter.close();
+    }
+
+    /*
+    Filtro del tree walk: solo file .java, escludendo (come getTouchedJavaFiles) i path con /test/ o /target/.
+    Le directory escluse vengono potate senza scendere nei sottoalberi.
+     */
+    private static final class JavaSourceFilter extends TreeFilter {
+        private static final JavaSourceFilter INSTANCE = new JavaSourceFilter();
+
+        @Override
+        public boolean include(TreeWalk walker) {
+            String path = walker.getPathString();
+            if (walker.isSubtree()) {
+                return !isExcluded(path + "/");
+            }
+            return path.endsWith(".java") && !isExcluded(path);
+        }
+
+        private static boolean isExcluded(String path) {
+            return path.contains("/test/") || path.contains("/target/");
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "JAVA_SOURCES";
+        }
+    }
+
+    // Diff di un commit: DiffEntry indicizzate per nuovo path + EditList calcolate su richiesta
+    private static final class CommitDiff {
+        private final List<DiffEntry> entries;
+        private final Map<String, DiffEntry> entriesByPath = new HashMap<>();
+        private final Map<String, EditList> editsByPath = new HashMap<>();
+
+        private CommitDiff(List<DiffEntry> entries) {
+            this.entries = Collections.unmodifiableList(entries);
+            for (DiffEntry entry : entries) {
+                if (entry.getChangeType() != DiffEntry.ChangeType.DELETE) {
+                    entriesByPath.put(entry.getNewPath(), entry);
+                }
+            }
+        }
+    }
+}
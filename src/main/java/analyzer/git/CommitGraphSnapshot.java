@@ -0,0 +1,182 @@
+package analyzer.git;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Snapshot su disco di CommitHistoryIndex, associato alla punta di origin/master da cui è stato costruito.
+Formato colonnare (big endian):
+- intestazione: magic, versione, id della punta, numero di commit
+- id dei commit (20 byte ciascuno), poi primo genitore, commit time, author time e id autore (un int ciascuno)
+- tabella degli autori e tabella dei path (stringhe UTF-8 con lunghezza)
+- path modificati in formato CSR: n + 1 offset seguiti dagli id dei path
+- tabella delle chiavi ticket citate nei messaggi, e chiavi di ogni commit in formato CSR
+La lettura è sequenziale con un buffer (niente file mappato: resterebbe aperto fino al GC e su Windows
+impedirebbe di sostituire il file); a punta invariata il caricamento non tocca il repository.
+Uno snapshot di versione diversa non viene letto: l'indice si ricostruisce da zero e lo snapshot viene riscritto.
+ */
+public final class CommitGraphSnapshot {
+
+    private static final int MAGIC = 0x49535747; // "ISWG"
+    private static final int VERSION = 2;
+
+    private final ObjectId tip;
+    private final CommitHistoryIndex index;
+
+    private CommitGraphSnapshot(ObjectId tip, CommitHistoryIndex index) {
+        this.tip = tip;
+        this.index = index;
+    }
+
+    // Punta di origin/master al momento della costruzione dell'indice salvato
+    public ObjectId getTip() {
+        return tip;
+    }
+
+    public CommitHistoryIndex getIndex() {
+        return index;
+    }
+
+    // Carica lo snapshot salvato; null se il file non esiste
+    public static CommitGraphSnapshot load(Repository repo, File file) throws IOException {
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Formato snapshot non riconosciuto: " + file);
+            }
+
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            in.readFully(rawId);
+            ObjectId tip = ObjectId.fromRaw(rawId);
+
+            int n = in.readInt();
+            ObjectId[] ids = new ObjectId[n];
+            for (int i = 0; i < n; i++) {
+                in.readFully(rawId);
+                ids[i] = ObjectId.fromRaw(rawId);
+            }
+
+            int[] parents = readInts(in, n);
+            int[] commitTimes = readInts(in, n);
+            int[] authorTimes = readInts(in, n);
+            int[] authorIds = readInts(in, n);
+            List<String> authors = readStrings(in);
+            List<String> paths = readStrings(in);
+            int[][] changedPaths = readRows(in, n);
+            List<String> ticketKeys = readStrings(in);
+            int[][] ticketKeyIds = readRows(in, n);
+
+            CommitHistoryIndex index = new CommitHistoryIndex(repo, ids, parents, commitTimes, authorTimes,
+                    authorIds, authors, changedPaths, paths, ticketKeyIds, ticketKeys);
+            return new CommitGraphSnapshot(tip, index);
+        } catch (RuntimeException e) {
+            // valori incoerenti (es. lunghezze negative): il file è da ricostruire
+            throw new IOException("Snapshot danneggiato: " + file, e);
+        }
+    }
+
+    // Salva l'indice costruito dalla punta indicata (file temporaneo + rename)
+    public static void save(File file, ObjectId tip, CommitHistoryIndex index) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        int n = index.size();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            tip.copyRawTo(rawId, 0);
+            out.write(rawId);
+
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                index.getId(i).copyRawTo(rawId, 0);
+                out.write(rawId);
+            }
+            writeInts(out, index.parentColumn());
+            writeInts(out, index.commitTimeColumn());
+            writeInts(out, index.authorTimeColumn());
+            writeInts(out, index.authorIdColumn());
+            writeStrings(out, index.authorTable());
+            writeStrings(out, index.pathTable());
+
+            writeRows(out, index.changedPathColumn());
+            writeStrings(out, index.ticketKeyTable());
+            writeRows(out, index.ticketKeyColumn());
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            values.add(new String(data, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    // Righe in formato CSR: n + 1 offset seguiti dai valori
+    private static int[][] readRows(DataInputStream in, int n) throws IOException {
+        int[] offsets = readInts(in, n + 1);
+        int[][] rows = new int[n][];
+        for (int i = 0; i < n; i++) {
+            rows[i] = readInts(in, offsets[i + 1] - offsets[i]);
+        }
+        return rows;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeRows(DataOutputStream out, int[][] rows) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (int[] row : rows) {
+            offset += row.length;
+            out.writeInt(offset);
+        }
+        for (int[] row : rows) {
+            writeInts(out, row);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+}
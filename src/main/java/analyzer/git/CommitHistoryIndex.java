@@ -0,0 +1,369 @@
+package analyzer.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Indice della storia del repository costruito con un solo RevWalk su origin/master.
+Per ogni commit (in ordine COMMIT_TIME_DESC) registra:
+- il primo genitore
+- commit time, author time e autore
+- i file .java modificati rispetto a tutti i genitori (come fa `git log -- path`)
+- le chiavi ticket citate nel messaggio (vedi TicketKeyIndex)
+Inoltre mantiene la mappa inversa path --> commit, così le query per file
+vengono risolte in memoria invece di rifare un walk filtrato per ogni file.
+Le colonne vengono salvate su disco da CommitGraphSnapshot e riusate nelle esecuzioni successive.
+ */
+public final class CommitHistoryIndex {
+
+    private static final String JAVA_SUFFIX = ".java";
+
+    private final RevWalk walk; // usato solo per ri-materializzare i RevCommit richiesti
+    private final ObjectId[] ids;
+    private final int[] parents; // indice del primo genitore, -1 se root o fuori dall'indice
+    private final int[] commitTimes; // secondi epoch (come RevCommit.getCommitTime)
+    private final int[] authorTimes; // secondi epoch dell'author ident
+    private final int[] authorIds;
+    private final List<String> authors;
+    private final int[][] changedPaths; // id dei path .java modificati dal commit
+    private final List<String> paths;
+    private final int[][] ticketKeys; // id delle chiavi ticket citate dal commit
+    private final List<String> keys;
+    private final Map<String, int[]> commitsByPath = new HashMap<>();
+    private final Map<ObjectId, Integer> positions = new HashMap<>();
+
+    CommitHistoryIndex(Repository repo, ObjectId[] ids, int[] parents, int[] commitTimes, int[] authorTimes,
+                       int[] authorIds, List<String> authors, int[][] changedPaths, List<String> paths,
+                       int[][] ticketKeys, List<String> keys) {
+        this.walk = new RevWalk(repo);
+        this.ids = ids;
+        this.parents = parents;
+        this.commitTimes = commitTimes;
+        this.authorTimes = authorTimes;
+        this.authorIds = authorIds;
+        this.authors = authors;
+        this.changedPaths = changedPaths;
+        this.paths = paths;
+        this.ticketKeys = ticketKeys;
+        this.keys = keys;
+        buildReverseMap();
+    }
+
+    /*
+    Costruisce l'indice percorrendo una sola volta la storia raggiungibile da tip.
+    Nello stesso passaggio registra i changed-path filter dei commit che ancora non li hanno.
+    Se previous non è null, i path modificati dei commit già presenti vengono copiati da lì
+    e il diff degli alberi si calcola solo per i commit nuovi (l'ordine resta quello del walk completo);
+    lo stesso vale per le chiavi ticket, estratte dal messaggio solo per i commit nuovi.
+     */
+    public static CommitHistoryIndex build(Repository repo, ObjectId tip, ChangedPathFilters filters,
+                                           CommitHistoryIndex previous) throws IOException {
+        List<ObjectId> ids = new ArrayList<>();
+        List<ObjectId> firstParents = new ArrayList<>();
+        List<Integer> times = new ArrayList<>();
+        List<Integer> authoredTimes = new ArrayList<>();
+        List<Integer> authorIdList = new ArrayList<>();
+        List<int[]> changed = new ArrayList<>();
+        List<int[]> cited = new ArrayList<>();
+
+        Map<String, Integer> authorIds = new HashMap<>();
+        List<String> authors = new ArrayList<>();
+        Map<String, Integer> pathIds = new HashMap<>();
+        List<String> paths = new ArrayList<>();
+        Map<String, Integer> keyIds = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+
+        try (RevWalk rw = new RevWalk(repo); TreeWalk tw = new TreeWalk(repo)) {
+            rw.markStart(rw.parseCommit(tip));
+            rw.sort(RevSort.COMMIT_TIME_DESC);
+
+            tw.setRecursive(true);
+            tw.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(JAVA_SUFFIX)));
+
+            for (RevCommit commit : rw) {
+                ids.add(commit.copy());
+                firstParents.add(commit.getParentCount() > 0 ? commit.getParent(0).copy() : null);
+                times.add(commit.getCommitTime());
+                authoredTimes.add((int) commit.getAuthorIdent().getWhenAsInstant().getEpochSecond());
+
+                String author = commit.getAuthorIdent().getName();
+                authorIdList.add(authorIds.computeIfAbsent(author, a -> {
+                    authors.add(a);
+                    return authors.size() - 1;
+                }));
+
+                int known = previous == null ? -1 : previous.indexOf(commit);
+                List<String> touched;
+                if (known != -1 && filters.contains(commit)) {
+                    touched = previous.getChangedPaths(known);
+                } else {
+                    List<String> anyDiff = new ArrayList<>();
+                    touched = diffAgainstParents(rw, tw, commit, anyDiff);
+                    if (!filters.contains(commit)) {
+                        filters.add(commit, anyDiff);
+                    }
+                }
+                int[] touchedIds = new int[touched.size()];
+                for (int i = 0; i < touchedIds.length; i++) {
+                    touchedIds[i] = pathIds.computeIfAbsent(touched.get(i), p -> {
+                        paths.add(p);
+                        return paths.size() - 1;
+                    });
+                }
+                changed.add(touchedIds);
+
+                List<String> commitKeys = known == -1
+                        ? new ArrayList<>(TicketKeyIndex.extractKeys(commit.getFullMessage()))
+                        : previous.getTicketKeys(known);
+                int[] commitKeyIds = new int[commitKeys.size()];
+                for (int i = 0; i < commitKeyIds.length; i++) {
+                    commitKeyIds[i] = keyIds.computeIfAbsent(commitKeys.get(i), k -> {
+                        keys.add(k);
+                        return keys.size() - 1;
+                    });
+                }
+                cited.add(commitKeyIds);
+            }
+        }
+
+        // Converte le liste in array colonnari
+        int n = ids.size();
+        Map<ObjectId, Integer> position = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            position.put(ids.get(i), i);
+        }
+        int[] parentIdx = new int[n];
+        int[] timeArr = new int[n];
+        int[] authorTimeArr = new int[n];
+        int[] authorArr = new int[n];
+        for (int i = 0; i < n; i++) {
+            ObjectId p = firstParents.get(i);
+            parentIdx[i] = p == null ? -1 : position.getOrDefault(p, -1);
+            timeArr[i] = times.get(i);
+            authorTimeArr[i] = authoredTimes.get(i);
+            authorArr[i] = authorIdList.get(i);
+        }
+
+        return new CommitHistoryIndex(repo, ids.toArray(new ObjectId[0]), parentIdx, timeArr, authorTimeArr,
+                authorArr, authors, changed.toArray(new int[0][]), paths, cited.toArray(new int[0][]), keys);
+    }
+
+    /*
+    Restituisce i path .java che il commit modifica rispetto a tutti i suoi genitori.
+    - root commit: confronto con l'albero vuoto
+    - merge: il file conta solo se differisce da ogni genitore (stessa regola di TreeRevFilter)
+    In anyDiff raccoglie invece i path che differiscono da almeno un genitore (usati dai changed-path filter).
+     */
+    private static List<String> diffAgainstParents(RevWalk rw, TreeWalk tw, RevCommit commit, List<String> anyDiff) throws IOException {
+        int parentCount = commit.getParentCount();
+        tw.reset();
+        if (parentCount == 0) {
+            tw.addTree(new EmptyTreeIterator());
+        }
+        for (int i = 0; i < parentCount; i++) {
+            tw.addTree(rw.parseCommit(commit.getParent(i)).getTree());
+        }
+        tw.addTree(commit.getTree());
+
+        int current = tw.getTreeCount() - 1;
+        List<String> touched = new ArrayList<>();
+        while (tw.next()) {
+            anyDiff.add(tw.getPathString());
+            boolean differsFromAll = true;
+            for (int i = 0; i < current && differsFromAll; i++) {
+                differsFromAll = !tw.idEqual(i, current);
+            }
+            if (differsFromAll) {
+                touched.add(tw.getPathString());
+            }
+        }
+        return touched;
+    }
+
+    // Costruisce la mappa inversa path --> indici dei commit (già in ordine COMMIT_TIME_DESC)
+    private void buildReverseMap() {
+        for (int i = 0; i < ids.length; i++) {
+            positions.put(ids[i], i);
+        }
+
+        int[] counts = new int[paths.size()];
+        for (int[] touched : changedPaths) {
+            for (int p : touched) counts[p]++;
+        }
+
+        int[][] byPath = new int[paths.size()][];
+        for (int p = 0; p < byPath.length; p++) {
+            byPath[p] = new int[counts[p]];
+        }
+
+        int[] fill = new int[paths.size()];
+        for (int c = 0; c < changedPaths.length; c++) {
+            for (int p : changedPaths[c]) {
+                byPath[p][fill[p]++] = c;
+            }
+        }
+
+        for (int p = 0; p < byPath.length; p++) {
+            commitsByPath.put(paths.get(p), byPath[p]);
+        }
+    }
+
+    // Commit che toccano il path con commit time <= maxCommitTime (stessa semantica di CommitTimeRevFilter.before)
+    public List<RevCommit> getCommitsTouchingPath(String path, int maxCommitTime) throws IOException {
+        int[] commits = commitsByPath.get(path);
+        List<RevCommit> result = new ArrayList<>();
+        if (commits == null) return result;
+
+        for (int c : commits) {
+            if (commitTimes[c] <= maxCommitTime) {
+                result.add(getCommit(c));
+            }
+        }
+        return result;
+    }
+
+    /*
+    Commit che toccano il path con commit time in (minCommitTimeExclusive, maxCommitTime], dal più recente.
+    Il commit che introduce il path (vedi getFirstCommitTouchingPath) è escluso:
+    non ha predecessori che toccano il file, come nel log filtrato per path.
+     */
+    public List<RevCommit> getCommitsTouchingPathBetween(String path, int minCommitTimeExclusive, int maxCommitTime) throws IOException {
+        int[] commits = commitsByPath.get(path);
+        List<RevCommit> result = new ArrayList<>();
+        if (commits == null) return result;
+
+        int first = lastPositionWithin(commits, maxCommitTime);
+        for (int i = 0; i < first; i++) {
+            int c = commits[i];
+            if (commitTimes[c] > minCommitTimeExclusive && commitTimes[c] <= maxCommitTime) {
+                result.add(getCommit(c));
+            }
+        }
+        return result;
+    }
+
+    // Indice del commit che introduce il path: l'ultimo che lo tocca con commit time <= maxCommitTime, -1 se nessuno
+    public int getFirstCommitTouchingPath(String path, int maxCommitTime) {
+        int[] commits = commitsByPath.get(path);
+        if (commits == null) return -1;
+        int first = lastPositionWithin(commits, maxCommitTime);
+        return first == -1 ? -1 : commits[first];
+    }
+
+    private int lastPositionWithin(int[] commits, int maxCommitTime) {
+        for (int i = commits.length - 1; i >= 0; i--) {
+            if (commitTimes[commits[i]] <= maxCommitTime) return i;
+        }
+        return -1;
+    }
+
+    // Ri-materializza un commit dell'indice (il RevWalk interno fa da cache degli oggetti)
+    public synchronized RevCommit getCommit(int index) throws IOException {
+        return walk.parseCommit(ids[index]);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public ObjectId getId(int index) {
+        return ids[index];
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    public int getCommitTime(int index) {
+        return commitTimes[index];
+    }
+
+    public int getAuthorTime(int index) {
+        return authorTimes[index];
+    }
+
+    // Posizione del commit nell'indice, -1 se non presente
+    public int indexOf(ObjectId id) {
+        return positions.getOrDefault(id, -1);
+    }
+
+    public String getAuthor(int index) {
+        return authors.get(authorIds[index]);
+    }
+
+    public List<String> getChangedPaths(int index) {
+        List<String> result = new ArrayList<>(changedPaths[index].length);
+        for (int p : changedPaths[index]) {
+            result.add(paths.get(p));
+        }
+        return result;
+    }
+
+    // Chiavi ticket citate nel messaggio del commit (maiuscole, senza duplicati)
+    public List<String> getTicketKeys(int index) {
+        List<String> result = new ArrayList<>(ticketKeys[index].length);
+        for (int k : ticketKeys[index]) {
+            result.add(keys.get(k));
+        }
+        return result;
+    }
+
+    public int getPathCount() {
+        return paths.size();
+    }
+
+    // Accesso alle colonne grezze, usato solo per la serializzazione
+    int[] parentColumn() {
+        return parents;
+    }
+
+    int[] commitTimeColumn() {
+        return commitTimes;
+    }
+
+    int[] authorTimeColumn() {
+        return authorTimes;
+    }
+
+    int[] authorIdColumn() {
+        return authorIds;
+    }
+
+    List<String> authorTable() {
+        return authors;
+    }
+
+    int[][] changedPathColumn() {
+        return changedPaths;
+    }
+
+    List<String> pathTable() {
+        return paths;
+    }
+
+    int[][] ticketKeyColumn() {
+        return ticketKeys;
+    }
+
+    List<String> ticketKeyTable() {
+        return keys;
+    }
+
+    public void close() {
+        walk.close();
+    }
+}
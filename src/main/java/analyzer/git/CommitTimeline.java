@@ -0,0 +1,124 @@
+package analyzer.git;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Arrays;
+
+/*
+Timeline compatta dei commit di origin/master, costruita una sola volta.
+- ordine: lo stesso del RevWalk COMMIT_TIME_DESC dell'indice della storia
+- id dei commit impacchettati in un unico byte[] (20 byte per commit)
+- author time in secondi, più il minimo prefisso per la ricerca binaria
+- permutazione ordinata per author time per le query su intervalli di date
+ */
+public final class CommitTimeline {
+
+    private final byte[] rawIds;
+    private final int[] authorTimes;
+    private final int[] prefixMinAuthorTimes; // non crescente: minimo degli author time fino alla posizione i
+    private final int[] byAuthorTime; // posizioni ordinate per author time crescente
+    private final int[] sortedAuthorTimes; // authorTimes[byAuthorTime[i]]
+
+    private CommitTimeline(byte[] rawIds, int[] authorTimes) {
+        this.rawIds = rawIds;
+        this.authorTimes = authorTimes;
+
+        int n = authorTimes.length;
+        this.prefixMinAuthorTimes = new int[n];
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, authorTimes[i]);
+            prefixMinAuthorTimes[i] = min;
+        }
+
+        this.byAuthorTime = sortPositionsByAuthorTime(authorTimes);
+        this.sortedAuthorTimes = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedAuthorTimes[i] = authorTimes[byAuthorTime[i]];
+        }
+    }
+
+    // Ricava la timeline dall'indice della storia (stesso walk COMMIT_TIME_DESC, nessun accesso al repository)
+    public static CommitTimeline fromHistory(CommitHistoryIndex history) {
+        int n = history.size();
+        byte[] raw = new byte[n * Constants.OBJECT_ID_LENGTH];
+        int[] authorTimes = new int[n];
+        for (int i = 0; i < n; i++) {
+            history.getId(i).copyRawTo(raw, i * Constants.OBJECT_ID_LENGTH);
+            authorTimes[i] = history.getAuthorTime(i);
+        }
+        return new CommitTimeline(raw, authorTimes);
+    }
+
+    private static int[] sortPositionsByAuthorTime(int[] authorTimes) {
+        // Ordina coppie (time, posizione) impacchettate in un long per evitare il boxing
+        long[] keys = new long[authorTimes.length];
+        for (int i = 0; i < authorTimes.length; i++) {
+            keys[i] = ((long) authorTimes[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = (int) keys[i];
+        }
+        return positions;
+    }
+
+    /*
+    Posizione del primo commit (nell'ordine COMMIT_TIME_DESC) con author time < limite, -1 se non esiste.
+    Il primo commit che soddisfa la condizione è anche il primo in cui il minimo prefisso scende sotto il limite,
+    quindi basta una ricerca binaria sul minimo prefisso.
+     */
+    public int findFirstAuthoredBefore(long epochSecondExclusive) {
+        int lo = 0;
+        int hi = prefixMinAuthorTimes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefixMinAuthorTimes[mid] < epochSecondExclusive) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo == prefixMinAuthorTimes.length ? -1 : lo;
+    }
+
+    // Posizioni (in ordine COMMIT_TIME_DESC) dei commit con author time in [fromInclusive, toExclusive)
+    public int[] findAuthoredBetween(long fromInclusive, long toExclusive) {
+        int start = lowerBound(fromInclusive);
+        int end = lowerBound(toExclusive);
+        if (start >= end) return new int[0];
+
+        int[] positions = Arrays.copyOfRange(byAuthorTime, start, end);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    // Primo indice di sortedAuthorTimes con valore >= key
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = sortedAuthorTimes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedAuthorTimes[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public ObjectId getId(int position) {
+        return ObjectId.fromRaw(rawIds, position * Constants.OBJECT_ID_LENGTH);
+    }
+
+    public int getAuthorTime(int position) {
+        return authorTimes[position];
+    }
+
+    public int size() {
+        return authorTimes.length;
+    }
+}
@@ -1,51 +1,94 @@
 package analyzer.git;
 
 import analyzer.exception.GitOperationException;
-import analyzer.model.TicketInfo;
+import analyzer.model.Release;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
-import org.eclipse.jgit.revwalk.filter.MessageRevFilter;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
+import util.Configuration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.logging.Level;
 
 public final class GitRepository {
     private final Repository repo;
     private final Git git;
+    private CommitHistoryIndex historyIndex; // caricato o costruito alla prima query per path o per data
+    private CommitTimeline timeline; // ricavata dall'indice della storia alla prima query per data
+    private TicketKeyIndex ticketKeyIndex; // ricavato dall'indice della storia al primo collegamento commit-ticket
+    private BlameService blameService; // creato alla prima richiesta del motore storico basato su blame
+    private final CommitDiffService diffService;
+    private final ChangedPathFilters changedPathFilters; // bloom filter per commit, salvati accanto al repository
 
     public GitRepository(String localPath) throws IOException {
         File localPathDir = new File(localPath);
         git = Git.open(localPathDir); // apre un repository git già clonato in locale
         repo = git.getRepository(); // usa JGit per collegarsi a quel repository
+        changedPathFilters = loadChangedPathFilters();
+        diffService = new CommitDiffService(repo, Configuration.DIFF_CACHE_SIZE, changedPathFilters);
+    }
+
+    // File dei changed-path filter, nella directory git del progetto analizzato
+    private File getChangedPathFiltersFile() {
+        return new File(repo.getDirectory(), "isw2/changed-path-filters.bin");
+    }
+
+    private ChangedPathFilters loadChangedPathFilters() {
+        try {
+            ChangedPathFilters filters = ChangedPathFilters.load(getChangedPathFiltersFile());
+            if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+                Configuration.logger.info(String.format("Changed-path filter caricati: %d commit", filters.size()));
+            }
+            return filters;
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Changed-path filter non leggibili, verranno ricostruiti", e);
+            return ChangedPathFilters.empty();
+        }
     }
 
     public Git getGit() {
         return this.git;
     }
 
-    // Filtra e restituisce i commit tra due date
+    // Servizio condiviso per i diff commit/genitore (con cache LRU)
+    public CommitDiffService getDiffService() {
+        return diffService;
+    }
+
+    // Servizio di blame per release (righe --> commit), creato sull'indice della storia alla prima richiesta
+    public synchronized BlameService getBlameService() throws IOException {
+        if (blameService == null) {
+            blameService = new BlameService(repo, getHistoryIndex());
+        }
+        return blameService;
+    }
+
+    // Filtra e restituisce i commit tra due date (estremi inclusi), risolti sulla timeline
     public List<RevCommit> getCommitsBetweenDates(LocalDate from, LocalDate to) throws GitOperationException {
         try {
-            Iterable<RevCommit> allCommits = this.getGit().log().call();
-            List<RevCommit> filtered = new ArrayList<>();
-            for (RevCommit commit : allCommits) {
-                LocalDate date = commit.getAuthorIdent().getWhen().toInstant()
-                        .atZone(ZoneId.systemDefault()).toLocalDate();
-                if (!date.isBefore(from) && !date.isAfter(to)) {
-                    filtered.add(commit);
+            ZoneId zone = ZoneId.systemDefault();
+            long fromSecond = from.atStartOfDay(zone).toEpochSecond();
+            long toSecondExclusive = to.plusDays(1).atStartOfDay(zone).toEpochSecond();
+
+            CommitTimeline timeline = getTimeline();
+            int[] positions = timeline.findAuthoredBetween(fromSecond, toSecondExclusive);
+
+            List<RevCommit> filtered = new ArrayList<>(positions.length);
+            try (RevWalk walk = new RevWalk(repo)) {
+                for (int position : positions) {
+                    filtered.add(walk.parseCommit(timeline.getId(position)));
                 }
             }
             return filtered;
@@ -55,58 +98,173 @@ public final class GitRepository {
 
     }
 
-    // Verifica se l’autore del commit corrisponde a uno degli autori dei commit noti nel ticket
-    public boolean isAuthorInTicket(RevCommit commit, TicketInfo ticket) {
-        String author = commit.getAuthorIdent().getName();
-        for (String commitId : ticket.getCommitIds()) {
-            try {
-                RevCommit linked = this.getGit().log()
-                        .add(this.getGit().getRepository().resolve(commitId))
-                        .call().iterator().next();
-                if (linked.getAuthorIdent().getName().equals(author)) {
-                    return true;
-                }
-            } catch (Exception e) {
-                // Ignora errori
+    // Restituisce i commit il cui messaggio cita la chiave del ticket (indice costruito alla prima richiesta)
+    public List<RevCommit> getCommitsForTicket(String ticketKey) throws GitOperationException {
+        try {
+            return getTicketKeyIndex().getCommits(ticketKey);
+        } catch (Exception e) {
+            throw new GitOperationException("Errore durante il recupero dei commit che citano '" + ticketKey + "'", e);
+        }
+    }
+
+    private synchronized TicketKeyIndex getTicketKeyIndex() throws IOException {
+        if (ticketKeyIndex == null) {
+            ticketKeyIndex = TicketKeyIndex.build(getHistoryIndex());
+            if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+                Configuration.logger.info(String.format("Indice chiavi ticket costruito: %d chiavi distinte", ticketKeyIndex.size()));
             }
         }
-        return false;
+        return ticketKeyIndex;
     }
 
-    // Cerca commit contenenti una parola chiave nel messaggio
-    public Iterable<RevCommit> getCommitsByMessageContaining(String keyword) throws GitOperationException {
+    // Trova l'ultimo commit prima della data di una release (ricerca binaria sulla timeline)
+    public RevCommit findLastCommitBefore(LocalDate releaseDate) throws IOException {
+
+        long targetSecond = java.sql.Date.valueOf(releaseDate).getTime() / 1000;
+
+        CommitTimeline timeline = getTimeline();
+        int position = timeline.findFirstAuthoredBefore(targetSecond);
+        if (position == -1) {
+            return null; // Nessun commit trovato prima della release
+        }
+        return repo.parseCommit(timeline.getId(position));
+    }
+
+    /*
+    Costruisce l'indice di contenimento commit --> release per le release indicate (in ordine).
+    Il commit di ogni release è lo stesso usato per l'analisi: l'ultimo prima della data di release.
+    L'indice dipende solo da nomi e commit delle release: se quello salvato corrisponde viene solo ricaricato,
+    altrimenti viene ricostruito e risalvato.
+     */
+    public ReleaseContainmentIndex buildReleaseContainmentIndex(List<Release> releases) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<String> names = new ArrayList<>(releases.size());
+        List<ObjectId> releaseCommits = new ArrayList<>(releases.size());
+        for (Release release : releases) {
+            names.add(release.getName());
+            RevCommit commit = findLastCommitBefore(release.getReleaseDate());
+            releaseCommits.add(commit == null ? null : commit.getId());
+        }
+
+        ReleaseContainmentIndex index = loadReleaseContainmentIndex(names, releaseCommits);
+        boolean loaded = index != null;
+        if (!loaded) {
+            index = ReleaseContainmentIndex.build(repo, names, releaseCommits);
+            saveReleaseContainmentIndex(index);
+        }
+        if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+            Configuration.logger.info(String.format("Indice di contenimento %s: %d commit in %d release (%d ms)",
+                    loaded ? "caricato" : "costruito", index.size(), index.getReleaseCount(),
+                    System.currentTimeMillis() - startTime));
+        }
+        return index;
+    }
+
+    // File dell'indice di contenimento, accanto allo snapshot della storia
+    private File getReleaseContainmentFile() {
+        return new File(repo.getDirectory(), "isw2/release-containment.bin");
+    }
+
+    private ReleaseContainmentIndex loadReleaseContainmentIndex(List<String> names, List<ObjectId> releaseCommits) {
         try {
-            return git.log()
-                    .setRevFilter(MessageRevFilter.create(keyword))
-                    .call();
-        } catch (Exception e) {
-            throw new GitOperationException("Errore durante il recupero dei commit con messaggi contenenti '" + keyword + "'", e);
+            return ReleaseContainmentIndex.load(getReleaseContainmentFile(), names, releaseCommits);
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Indice di contenimento non leggibile, verrà ricostruito", e);
+            return null;
         }
     }
 
-    // Trova l'ultimo commit prima della data di una release
-    public RevCommit findLastCommitBefore(LocalDate releaseDate) throws IOException {
+    private void saveReleaseContainmentIndex(ReleaseContainmentIndex index) {
+        try {
+            index.save(getReleaseContainmentFile());
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Impossibile salvare l'indice di contenimento", e);
+        }
+    }
 
-        Date targetDate = java.sql.Date.valueOf(releaseDate);
+    // Risolve la punta di origin/master
+    private ObjectId resolveMasterTip() throws IOException {
+        Ref master = repo.findRef("refs/remotes/origin/master");
+        if (master == null) {
+            throw new IOException("Impossibile trovare origin/master");
+        }
+        return master.getObjectId();
+    }
 
-        try (RevWalk walk = new RevWalk(repo)) {
-            // Forza l'inizio da origin/master per evitare problemi di branch locali
-            Ref master = repo.findRef("refs/remotes/origin/master");
-            if (master == null) {
-                throw new IOException("Impossibile trovare origin/master");
-            }
-            walk.markStart(walk.parseCommit(master.getObjectId()));
-            walk.sort(RevSort.COMMIT_TIME_DESC); // Ordina dal più recente al più vecchio
+    // Restituisce la timeline dei commit di origin/master, ricavata dall'indice della storia alla prima richiesta
+    public synchronized CommitTimeline getTimeline() throws IOException {
+        if (timeline == null) {
+            timeline = CommitTimeline.fromHistory(getHistoryIndex());
+        }
+        return timeline;
+    }
+
+    /*
+    Restituisce l'indice della storia alla prima richiesta:
+    - se lo snapshot salvato corrisponde alla punta attuale di origin/master viene solo caricato
+    - altrimenti l'indice viene ricostruito riusando i path modificati dei commit già noti, e risalvato
+     */
+    public synchronized CommitHistoryIndex getHistoryIndex() throws IOException {
+        if (historyIndex == null) {
+            long startTime = System.currentTimeMillis();
+            ObjectId tip = resolveMasterTip();
+            CommitGraphSnapshot snapshot = loadCommitGraphSnapshot();
 
-            for (RevCommit commit : walk) {
-                Date commitDate = commit.getAuthorIdent().getWhen(); // Estrae la data del commit
-                if (commitDate.before(targetDate)) { // Se è prima della data della release
-                    return commit; // Trovato il commit valido
+            if (snapshot != null && snapshot.getTip().equals(tip)) {
+                historyIndex = snapshot.getIndex();
+                if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+                    Configuration.logger.info(String.format("Indice storico caricato dallo snapshot: %d commit, %d file .java (%d ms)",
+                            historyIndex.size(), historyIndex.getPathCount(), System.currentTimeMillis() - startTime));
                 }
+                return historyIndex;
+            }
+
+            CommitHistoryIndex previous = snapshot == null ? null : snapshot.getIndex();
+            historyIndex = CommitHistoryIndex.build(repo, tip, changedPathFilters, previous);
+            if (previous != null) {
+                previous.close();
+            }
+            saveChangedPathFilters();
+            saveCommitGraphSnapshot(tip);
+            if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+                Configuration.logger.info(String.format("Indice storico costruito: %d commit (%d già nello snapshot), %d file .java (%d ms)",
+                        historyIndex.size(), previous == null ? 0 : previous.size(), historyIndex.getPathCount(),
+                        System.currentTimeMillis() - startTime));
             }
         }
+        return historyIndex;
+    }
+
+    // Cache incrementale di PMD per una release: un file per release, così ogni file resta valido tra esecuzioni
+    public File getPmdCacheFile(String releaseName) {
+        return new File(repo.getDirectory(), "isw2/pmd-cache-" + releaseName.replaceAll("[^A-Za-z0-9._-]", "_") + ".bin");
+    }
+
+    // Quarantena dei file troppo lenti da analizzare (per blob), valida tra esecuzioni
+    public File getQuarantineFile() {
+        return new File(repo.getDirectory(), "isw2/quarantine.tsv");
+    }
+
+    // File dello snapshot dell'indice della storia, accanto ai changed-path filter
+    private File getCommitGraphSnapshotFile() {
+        return new File(repo.getDirectory(), "isw2/commit-graph.bin");
+    }
+
+    private CommitGraphSnapshot loadCommitGraphSnapshot() {
+        try {
+            return CommitGraphSnapshot.load(repo, getCommitGraphSnapshotFile());
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Snapshot della storia non leggibile, verrà ricostruito", e);
+            return null;
+        }
+    }
 
-        return null; // Nessun commit trovato prima della release
+    private void saveCommitGraphSnapshot(ObjectId tip) {
+        try {
+            CommitGraphSnapshot.save(getCommitGraphSnapshotFile(), tip, historyIndex);
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Impossibile salvare lo snapshot della storia", e);
+        }
     }
 
     // Esegue il checkout al commit indicato
@@ -123,41 +281,93 @@ public final class GitRepository {
                 .call();
     }
 
+    private void saveChangedPathFilters() {
+        try {
+            changedPathFilters.save(getChangedPathFiltersFile());
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Impossibile salvare i changed-path filter", e);
+        }
+    }
+
+    /*
+    Blob dei file .java del commit in checkout (HEAD), indicizzati per path assoluto nel working tree.
+    Sono gli id reali dell'object database: il testo del working tree può differire dal blob
+    (autocrlf, filtri smudge, encoding), ma il blob resta rileggibile anche dopo il checkout successivo.
+     */
+    public Map<Path, ObjectId> getCheckedOutJavaBlobs() throws IOException {
+        Map<Path, ObjectId> blobs = new HashMap<>();
+        ObjectId head = repo.resolve(Constants.HEAD);
+        if (head == null) return blobs;
+
+        Path workTree = repo.getWorkTree().toPath().toAbsolutePath().normalize();
+        try (ReleaseSnapshot snapshot = openSnapshot(repo.parseCommit(head))) {
+            for (ReleaseSnapshot.Entry entry : snapshot.listJavaFiles()) {
+                blobs.put(workTree.resolve(entry.getPath()).normalize(), entry.getBlobId());
+            }
+        }
+        return blobs;
+    }
+
+    // Apre una vista in sola lettura dell'albero del commit, alternativa al checkout
+    public ReleaseSnapshot openSnapshot(RevCommit commit) {
+        return new ReleaseSnapshot(repo, commit);
+    }
+
     // Chiude la connessione con il repository
     public void close() {
+        if (historyIndex != null) {
+            historyIndex.close();
+        }
+        diffService.close();
         git.close();
     }
 
-    // Estrae tutti i commit che modificano un file prima di una certa release
-    public Iterable<RevCommit> getCommitsTouchingFileBefore(String filePath, LocalDate releaseDate) throws GitOperationException {
+    /*
+    Estrae tutti i commit che modificano un file prima di una certa release (risolto sull'indice in memoria).
+    I commit sono dal più recente al più vecchio: come nel log filtrato per path,
+    il predecessore di ogni commit è l'elemento successivo della lista.
+     */
+    public List<RevCommit> getCommitsTouchingFileBefore(String filePath, LocalDate releaseDate) throws GitOperationException {
         try {
-            return git.log()
-                    .addPath(filePath)
-                    .setRevFilter(CommitTimeRevFilter.before(java.sql.Date.valueOf(releaseDate)))
-                    .call();
+            // Stesso limite di CommitTimeRevFilter.before: commit time <= mezzanotte della data di release
+            int maxCommitTime = (int) (java.sql.Date.valueOf(releaseDate).getTime() / 1000);
+            return getHistoryIndex().getCommitsTouchingPath(filePath, maxCommitTime);
         } catch (Exception e) {
             throw new GitOperationException("Errore nel recupero dei commit che toccano il file prima della release: " + filePath, e);
         }
     }
 
+    /*
+    Commit che modificano un file tra due release: commit time dopo la mezzanotte di afterDate (se presente)
+    e fino a quella di releaseDate. Dal più recente, senza il commit che introduce il file.
+     */
+    public List<RevCommit> getCommitsTouchingFileBetween(String filePath, LocalDate afterDate, LocalDate releaseDate) throws GitOperationException {
+        try {
+            int minCommitTime = afterDate == null ? Integer.MIN_VALUE : (int) (java.sql.Date.valueOf(afterDate).getTime() / 1000);
+            int maxCommitTime = (int) (java.sql.Date.valueOf(releaseDate).getTime() / 1000);
+            return getHistoryIndex().getCommitsTouchingPathBetween(filePath, minCommitTime, maxCommitTime);
+        } catch (Exception e) {
+            throw new GitOperationException("Errore nel recupero dei commit che toccano il file tra due release: " + filePath, e);
+        }
+    }
+
+    // Contenuto di un blob dell'object database
+    public byte[] readBlob(ObjectId blobId) throws IOException {
+        return repo.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
     // Restituisce il commit padre del commit passato come input
     public RevCommit parseCommit(RevCommit commit) throws IOException {
         return repo.parseCommit(commit.getParent(0));
     }
 
     // Analizza il diff tra un commit e il suo genitore, estraendo i file .java modificati
-    public Set<String> getTouchedJavaFiles(RevCommit commit) throws GitOperationException, IOException {
+    public Set<String> getTouchedJavaFiles(RevCommit commit) throws GitOperationException {
         Set<String> javaFiles = new HashSet<>();
         if (commit.getParentCount() == 0) return javaFiles; // Salta root commit
 
-        RevCommit parent = parseCommit(commit);
-
-        try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            df.setRepository(repo);
-            df.setDetectRenames(true);
-            List<DiffEntry> diffs = df.scan(parent.getTree(), commit.getTree());
-
-            for (DiffEntry diff : diffs) {
+        try {
+            for (DiffEntry diff : diffService.getEntries(commit)) {
                 String path = diff.getNewPath();
                 if (path.endsWith(".java") && !path.contains("/test/") && !path.contains("/target/")) {
                     javaFiles.add(path);
@@ -172,6 +382,3 @@ public final class GitRepository {
     }
 
 }
-
-
-
@@ -0,0 +1,194 @@
+package analyzer.git;
+
+import analyzer.model.Release;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+Indice commit --> prima release (in ordine) il cui commit di release lo contiene.
+Costruito una sola volta: per ogni release si fa un walk topologico dal suo commit,
+marcando come uninteresting i commit delle release precedenti, così ogni commit
+viene assegnato alla prima release che lo raggiunge.
+L'appartenenza si basa sull'ascendenza e non sulle date: un commit con data vecchia
+ma entrato dopo (es. backport o merge tardivo) finisce nella release giusta.
+L'indice si salva accanto al repository insieme a nomi e commit delle release da cui è stato costruito
+(formato big endian: magic, versione, release, poi coppie id commit + ordinale) e si ricarica solo se coincidono.
+ */
+public final class ReleaseContainmentIndex {
+
+    private static final int MAGIC = 0x49535743; // "ISWC"
+    private static final int VERSION = 1;
+
+    private final ObjectIdOwnerMap<Member> members = new ObjectIdOwnerMap<>();
+    private final List<String> releaseNames;
+    private final List<ObjectId> releaseCommits;
+    private final Map<String, Integer> ordinalByName = new HashMap<>();
+
+    private ReleaseContainmentIndex(List<String> releaseNames, List<ObjectId> releaseCommits) {
+        this.releaseNames = releaseNames;
+        this.releaseCommits = releaseCommits;
+        for (int i = 0; i < releaseNames.size(); i++) {
+            ordinalByName.putIfAbsent(Release.normalizeVersionName(releaseNames.get(i)), i);
+        }
+    }
+
+    /*
+    releaseNames e releaseCommits sono allineati e in ordine di release.
+    Un commit di release null (nessun commit prima della data) non contiene nulla.
+     */
+    public static ReleaseContainmentIndex build(Repository repo, List<String> releaseNames, List<ObjectId> releaseCommits) throws IOException {
+        ReleaseContainmentIndex index = new ReleaseContainmentIndex(new ArrayList<>(releaseNames), new ArrayList<>(releaseCommits));
+        List<RevCommit> previous = new ArrayList<>();
+
+        try (RevWalk walk = new RevWalk(repo)) {
+            for (int i = 0; i < releaseCommits.size(); i++) {
+                ObjectId releaseCommit = releaseCommits.get(i);
+                if (releaseCommit == null) continue;
+
+                walk.reset();
+                walk.sort(RevSort.TOPO);
+                RevCommit start = walk.parseCommit(releaseCommit);
+                walk.markStart(start);
+                // I commit già raggiungibili dalle release precedenti sono già assegnati
+                for (RevCommit done : previous) {
+                    walk.markUninteresting(done);
+                }
+                for (RevCommit commit : walk) {
+                    index.members.add(new Member(commit, i));
+                }
+                previous.add(start);
+            }
+        }
+        return index;
+    }
+
+    /*
+    Ricarica l'indice salvato se è stato costruito dalle stesse release (nomi e commit, nello stesso ordine);
+    null se il file non esiste o le release sono cambiate.
+     */
+    public static ReleaseContainmentIndex load(File file, List<String> releaseNames, List<ObjectId> releaseCommits) throws IOException {
+        if (!file.isFile()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Formato indice di contenimento non riconosciuto: " + file);
+            }
+
+            int releaseCount = in.readInt();
+            if (releaseCount != releaseNames.size()) return null;
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < releaseCount; i++) {
+                String name = in.readUTF();
+                ObjectId commit = in.readBoolean() ? readId(in, rawId) : null;
+                if (!name.equals(releaseNames.get(i)) || !Objects.equals(commit, releaseCommits.get(i))) return null;
+            }
+
+            ReleaseContainmentIndex index = new ReleaseContainmentIndex(new ArrayList<>(releaseNames), new ArrayList<>(releaseCommits));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ObjectId commit = readId(in, rawId);
+                index.members.add(new Member(commit, in.readInt()));
+            }
+            return index;
+        }
+    }
+
+    // Salva l'indice con le release da cui è stato costruito (file temporaneo + rename)
+    public void save(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            out.writeInt(releaseNames.size());
+            for (int i = 0; i < releaseNames.size(); i++) {
+                out.writeUTF(releaseNames.get(i));
+                ObjectId commit = releaseCommits.get(i);
+                out.writeBoolean(commit != null);
+                if (commit != null) {
+                    commit.copyRawTo(rawId, 0);
+                    out.write(rawId);
+                }
+            }
+
+            out.writeInt(members.size());
+            for (Member member : members) {
+                member.copyRawTo(rawId, 0);
+                out.write(rawId);
+                out.writeInt(member.release);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ObjectId readId(DataInputStream in, byte[] rawId) throws IOException {
+        in.readFully(rawId);
+        return ObjectId.fromRaw(rawId);
+    }
+
+    // Ordinale della prima release che contiene il commit, -1 se nessuna lo contiene
+    public int getReleaseOrdinal(AnyObjectId commit) {
+        Member member = members.get(commit);
+        return member == null ? -1 : member.release;
+    }
+
+    // Nome della prima release che contiene il commit, null se nessuna lo contiene
+    public String getReleaseName(AnyObjectId commit) {
+        int ordinal = getReleaseOrdinal(commit);
+        return ordinal == -1 ? null : releaseNames.get(ordinal);
+    }
+
+    // Ordinale della release con il nome dato ("4.1" e "4.1.0" sono la stessa release), -1 se non è nell'indice
+    public int getOrdinal(String releaseName) {
+        if (releaseName == null) return -1;
+        return ordinalByName.getOrDefault(Release.normalizeVersionName(releaseName), -1);
+    }
+
+    // true se il commit è contenuto nella release indicata (cioè in essa o in una precedente)
+    public boolean isContainedIn(AnyObjectId commit, int releaseOrdinal) {
+        int ordinal = getReleaseOrdinal(commit);
+        return ordinal != -1 && ordinal <= releaseOrdinal;
+    }
+
+    public int getReleaseCount() {
+        return releaseNames.size();
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    private static final class Member extends ObjectIdOwnerMap.Entry {
+        private final int release;
+
+        private Member(AnyObjectId id, int release) {
+            super(id);
+            this.release = release;
+        }
+    }
+}
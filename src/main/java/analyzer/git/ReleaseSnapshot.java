@@ -0,0 +1,92 @@
+package analyzer.git;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Vista in sola lettura dell'albero di un commit di release.
+Legge i file direttamente dall'object database (TreeWalk + ObjectReader),
+senza checkout: nessuna scrittura sul working tree, funziona anche su un mirror bare.
+Ogni snapshot ha il proprio ObjectReader, quindi più release possono essere lette in parallelo
+(una snapshot non va però condivisa tra thread).
+ */
+public final class ReleaseSnapshot implements AutoCloseable {
+
+    private final RevCommit commit;
+    private final ObjectReader reader;
+
+    ReleaseSnapshot(Repository repo, RevCommit commit) {
+        this.commit = commit;
+        this.reader = repo.newObjectReader();
+    }
+
+    public RevCommit getCommit() {
+        return commit;
+    }
+
+    // Elenca tutti i file .java presenti nell'albero del commit (path relativo alla root del repository)
+    public List<Entry> listJavaFiles() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (TreeWalk tw = new TreeWalk(reader)) {
+            tw.addTree(commit.getTree());
+            tw.setRecursive(true);
+            tw.setFilter(PathSuffixFilter.create(".java"));
+            while (tw.next()) {
+                // Salta submodule e symlink, come farebbe Files.isRegularFile sul working tree
+                FileMode mode = tw.getFileMode(0);
+                if (mode != FileMode.REGULAR_FILE && mode != FileMode.EXECUTABLE_FILE) continue;
+                entries.add(new Entry(tw.getPathString(), tw.getObjectId(0)));
+            }
+        }
+        return entries;
+    }
+
+    // Legge il contenuto grezzo del blob
+    public byte[] readBytes(Entry entry) throws IOException {
+        return reader.open(entry.getBlobId(), Constants.OBJ_BLOB).getBytes();
+    }
+
+    // Decodifica il blob in UTF-8; come Files.readString fallisce sui file non UTF-8 validi
+    public String readSource(Entry entry) throws IOException {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .decode(ByteBuffer.wrap(readBytes(entry)))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            throw new IOException("File non UTF-8: " + entry.getPath(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    // File dello snapshot: path nel repository + id del blob
+    public static final class Entry {
+        private final String path;
+        private final ObjectId blobId;
+
+        Entry(String path, ObjectId blobId) {
+            this.path = path;
+            this.blobId = blobId;
+        }
+
+        public String getPath() { return path; }
+
+        public ObjectId getBlobId() { return blobId; }
+    }
+}
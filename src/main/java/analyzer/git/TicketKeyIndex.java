@@ -0,0 +1,78 @@
+package analyzer.git;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+Indice invertito chiave ticket --> commit, ricavato dalle chiavi che CommitHistoryIndex estrae dai messaggi.
+Le chiavi sono salvate con lo snapshot della storia: a punta invariata l'indice non rilegge nessun messaggio,
+altrimenti vengono estratte solo per i commit nuovi.
+Le chiavi (PROGETTO-NNN) sono riconosciute solo a confine di parola:
+BOOKKEEPER-12 non viene più trovato dentro BOOKKEEPER-123.
+ */
+public final class TicketKeyIndex {
+
+    // Chiave non preceduta da lettere/cifre e non seguita da altre cifre; il match è case-insensitive
+    private static final Pattern TICKET_KEY = Pattern.compile("(?<![A-Za-z0-9_])([A-Za-z][A-Za-z0-9_]*-\\d+)(?!\\d)");
+
+    private final CommitHistoryIndex history;
+    private final Map<String, int[]> commitsByKey; // posizioni nell'indice della storia, dal commit più recente
+
+    private TicketKeyIndex(CommitHistoryIndex history, Map<String, int[]> commitsByKey) {
+        this.history = history;
+        this.commitsByKey = commitsByKey;
+    }
+
+    // Costruisce l'indice dalle chiavi già registrate nell'indice della storia (stesso ordine COMMIT_TIME_DESC)
+    public static TicketKeyIndex build(CommitHistoryIndex history) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < history.size(); i++) {
+            for (String key : history.getTicketKeys(i)) {
+                positions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Map<String, int[]> commitsByKey = new HashMap<>(positions.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            commitsByKey.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return new TicketKeyIndex(history, commitsByKey);
+    }
+
+    // Estrae le chiavi distinte citate nel messaggio, normalizzate in maiuscolo
+    static Set<String> extractKeys(String message) {
+        Set<String> keys = new LinkedHashSet<>();
+        Matcher matcher = TICKET_KEY.matcher(message);
+        while (matcher.find()) {
+            keys.add(matcher.group(1).toUpperCase(Locale.ROOT));
+        }
+        return keys;
+    }
+
+    // Commit che citano il ticket (dal più recente), lista vuota se nessuno
+    public List<RevCommit> getCommits(String ticketKey) throws IOException {
+        int[] positions = commitsByKey.get(ticketKey.toUpperCase(Locale.ROOT));
+        if (positions == null) return Collections.emptyList();
+
+        List<RevCommit> commits = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            commits.add(history.getCommit(position));
+        }
+        return commits;
+    }
+
+    public int size() {
+        return commitsByKey.size();
+    }
+}
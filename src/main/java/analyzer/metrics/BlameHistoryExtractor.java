@@ -0,0 +1,124 @@
+package analyzer.metrics;
+
+import analyzer.git.BlameService;
+import analyzer.git.CommitHistoryIndex;
+import analyzer.git.GitRepository;
+import analyzer.git.ReleaseSnapshot;
+import analyzer.model.MethodInfo;
+import analyzer.model.Release;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import util.Configuration;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/*
+Metriche storiche dei metodi ricavate dal blame del file alla release, alternativa a HistoricalMetricExtractor.
+Per ogni metodo si guardano i commit che hanno scritto le sue righe attuali (intervallo [startLine, endLine]):
+- MethodHistories: commit distinti
+- DistinctAuthors: autori distinti di quei commit
+- StmtAdded: righe del metodo scritte da quei commit; StmtDeleted è sempre 0 (il blame non vede le righe rimosse)
+- Churn: StmtAdded + StmtDeleted
+Come nel motore a diff il commit che introduce il file non conta. Le righe seguono le modifiche,
+quindi non c'è lo slittamento dei numeri di riga dei diff storici mappati sulla release corrente.
+ */
+public class BlameHistoryExtractor implements MethodHistoryAnalyzer {
+
+    private final GitRepository repo;
+
+    public BlameHistoryExtractor(GitRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public void analyzeHistoryForMethods(List<MethodInfo> methods, Release release) {
+        Map<String, List<MethodInfo>> methodsByFile = methods.stream()
+                .collect(Collectors.groupingBy(m -> HistoricalMetricExtractor.extractFilePathFromMethodName(m.getMethodName())));
+
+        try {
+            RevCommit releaseCommit = repo.findLastCommitBefore(release.getReleaseDate());
+            if (releaseCommit == null) return;
+
+            CommitHistoryIndex history = repo.getHistoryIndex();
+            BlameService blameService = repo.getBlameService();
+            Map<String, ObjectId> blobByPath = listBlobs(releaseCommit);
+            // Stesso limite di getCommitsTouchingFileBetween per il commit che introduce il file
+            int maxCommitTime = (int) (java.sql.Date.valueOf(release.getReleaseDate()).getTime() / 1000);
+
+            for (Map.Entry<String, List<MethodInfo>> entry : methodsByFile.entrySet()) {
+                String filePath = entry.getKey();
+                ObjectId blobId = blobByPath.get(filePath);
+                if (blobId == null) continue;
+
+                try {
+                    int[] lineCommits = blameService.blame(releaseCommit, filePath, blobId);
+                    int introducing = history.getFirstCommitTouchingPath(filePath, maxCommitTime);
+                    for (MethodInfo method : entry.getValue()) {
+                        applyBlame(method, lineCommits, introducing, history);
+                    }
+                } catch (Exception e) {
+                    Configuration.logger.log(Level.SEVERE,
+                            String.format("Errore nel blame del file: %s", filePath), e);
+                }
+            }
+
+            if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+                Configuration.logger.info(blameService.getStatistics());
+            }
+        } catch (Exception e) {
+            Configuration.logger.log(Level.SEVERE,
+                    String.format("Errore nell'analisi storica (blame) della release %s", release.getName()), e);
+        }
+    }
+
+    private Map<String, ObjectId> listBlobs(RevCommit releaseCommit) throws IOException {
+        Map<String, ObjectId> blobByPath = new HashMap<>();
+        try (ReleaseSnapshot snapshot = repo.openSnapshot(releaseCommit)) {
+            for (ReleaseSnapshot.Entry entry : snapshot.listJavaFiles()) {
+                blobByPath.put(entry.getPath(), entry.getBlobId());
+            }
+        }
+        return blobByPath;
+    }
+
+    // Commit e autori delle righe del metodo (righe 1-based incluse, l'array del blame è 0-based)
+    private void applyBlame(MethodInfo method, int[] lineCommits, int introducing, CommitHistoryIndex history) {
+        int from = Math.max(0, method.getStartLine() - 1);
+        int to = Math.min(lineCommits.length, method.getEndLine());
+        if (from >= to) return;
+
+        int[] commits = new int[to - from];
+        int count = 0;
+        for (int line = from; line < to; line++) {
+            int commit = lineCommits[line];
+            if (commit >= 0 && commit != introducing) {
+                commits[count++] = commit;
+            }
+        }
+        if (count == 0) return; // metodo mai toccato dopo la nascita del file: restano i valori di default
+
+        Arrays.sort(commits, 0, count);
+        int distinct = 0;
+        Set<String> authors = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || commits[i] != commits[i - 1]) {
+                distinct++;
+                authors.add(history.getAuthor(commits[i]));
+            }
+        }
+
+        method.setMethodHistories(distinct);
+        method.setStmtAdded(count);
+        method.setStmtDeleted(0);
+        method.setChurn(count);
+        method.setDistinctAuthors(authors.size());
+    }
+}
@@ -0,0 +1,133 @@
+package analyzer.metrics;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/*
+Metriche statiche predefinite, nell'ordine degli indici di MetricRegistry.
+Danno gli stessi valori dei metodi calculateXxx di StaticMetricCalculator, ma dentro la visita condivisa.
+ */
+final class BuiltinMetrics implements MetricProvider {
+
+    @Override
+    public List<MethodMetric> createMetrics() {
+        return List.of(
+                new ScanValue("LOC", false, MethodScan::getLoc),
+                new ScanValue("CommentLines", false, MethodScan::getCommentLines),
+                new CyclomaticComplexity(),
+                new CognitiveComplexity(),
+                new ScanValue("ParameterCount", true, scan -> scan.getMethod().getParameters().size()),
+                new ScanValue("NestingDepth", true, MethodScan::getMaxDepth),
+                new ScanValue("StatementCount", true,
+                        scan -> scan.getMethod().getBody().map(b -> b.getStatements().size()).orElse(0)),
+                new LocalVariableCount(),
+                new ScanValue("ReturnTypeComplexity", true,
+                        scan -> StaticMetricCalculator.computeTypeComplexity(scan.getMethod().getType())));
+    }
+
+    // Metrica senza callback: il valore si legge dal metodo o dalla scansione
+    private static final class ScanValue implements MethodMetric {
+        private final String name;
+        private final boolean reusable;
+        private final ToIntFunction<MethodScan> value;
+
+        private ScanValue(String name, boolean reusable, ToIntFunction<MethodScan> value) {
+            this.name = name;
+            this.reusable = reusable;
+            this.value = value;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public int end(MethodScan scan) { return value.applyAsInt(scan); }
+
+        @Override
+        public boolean isReusableByFingerprint() { return reusable; }
+    }
+
+    // 1 + if, for, foreach, while, do, case, catch, ternari
+    private static final class CyclomaticComplexity implements MethodMetric {
+        private int count;
+
+        @Override
+        public String getName() { return "CyclomaticComplexity"; }
+
+        @Override
+        public void register(MetricTraversal traversal) {
+            MetricTraversal.NodeCallback<Node> counter = (node, depth) -> count++;
+            traversal.on(IfStmt.class, counter);
+            traversal.on(ForStmt.class, counter);
+            traversal.on(ForEachStmt.class, counter);
+            traversal.on(WhileStmt.class, counter);
+            traversal.on(DoStmt.class, counter);
+            traversal.on(SwitchEntry.class, counter);
+            traversal.on(CatchClause.class, counter);
+            traversal.on(ConditionalExpr.class, counter);
+        }
+
+        @Override
+        public void begin(MethodDeclaration method) { count = 0; }
+
+        @Override
+        public int end(MethodScan scan) { return 1 + count; }
+    }
+
+    // if, for, foreach, while, do, switch, catch, ternari + penalità di nesting oltre il primo livello
+    private static final class CognitiveComplexity implements MethodMetric {
+        private int count;
+
+        @Override
+        public String getName() { return "CognitiveComplexity"; }
+
+        @Override
+        public void register(MetricTraversal traversal) {
+            MetricTraversal.NodeCallback<Node> counter = (node, depth) -> count++;
+            traversal.on(IfStmt.class, counter);
+            traversal.on(ForStmt.class, counter);
+            traversal.on(ForEachStmt.class, counter);
+            traversal.on(WhileStmt.class, counter);
+            traversal.on(DoStmt.class, counter);
+            traversal.on(SwitchStmt.class, counter);
+            traversal.on(CatchClause.class, counter);
+            traversal.on(ConditionalExpr.class, counter);
+        }
+
+        @Override
+        public void begin(MethodDeclaration method) { count = 0; }
+
+        @Override
+        public int end(MethodScan scan) { return count + Math.max(0, scan.getMaxDepth() - 1); }
+    }
+
+    // Variabili dichiarate nel metodo, esclusi i parametri
+    private static final class LocalVariableCount implements MethodMetric {
+        private int count;
+
+        @Override
+        public String getName() { return "LocalVariableCount"; }
+
+        @Override
+        public void register(MetricTraversal traversal) {
+            traversal.on(VariableDeclarator.class, (node, depth) -> {
+                if (node.getParentNode().isPresent() && !(node.getParentNode().get() instanceof Parameter)) {
+                    count++;
+                }
+            });
+        }
+
+        @Override
+        public void begin(MethodDeclaration method) { count = 0; }
+
+        @Override
+        public int end(MethodScan scan) { return count; }
+    }
+}
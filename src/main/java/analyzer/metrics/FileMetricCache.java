@@ -0,0 +1,126 @@
+package analyzer.metrics;
+
+import analyzer.model.MethodInfo;
+import org.eclipse.jgit.lib.AnyObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Cache delle metriche statiche per contenuto del file.
+- chiave: id del blob git del sorgente + versione del ruleset PMD usato per gli smell
+- valore: per ogni metodo nome, righe di inizio/fine, metriche statiche e smell
+Un file con lo stesso blob in un'altra release produce esattamente gli stessi risultati,
+quindi i MethodInfo vengono ricostruiti dalla cache cambiando solo path e release.
+Le metriche storiche e la bugginess non sono in cache: dipendono dalla release.
+Per i file cambiati c'è un secondo livello per metodo, indicizzato dal fingerprint dei token:
+un metodo rimasto uguale riusa le metriche calcolate sull'AST (gli smell vengono comunque da PMD,
+che gira sul file intero e dipende anche dal resto della classe). Questo livello è letto dai worker
+in parallelo, quindi è concorrente.
+ */
+final class FileMetricCache {
+
+    private final String rulesetVersion;
+    private final Map<String, List<CachedMethod>> methodsByKey = new HashMap<>();
+    private long hits;
+    private long misses;
+    private final Map<Long, StaticMetrics> metricsByFingerprint = new ConcurrentHashMap<>();
+    private final LongAdder methodHits = new LongAdder();
+    private final LongAdder methodMisses = new LongAdder();
+
+    FileMetricCache(String rulesetVersion) {
+        this.rulesetVersion = rulesetVersion;
+    }
+
+    private String key(AnyObjectId blobId) {
+        return blobId.name() + "@" + rulesetVersion;
+    }
+
+    // Metodi del blob già analizzato, null se il blob non è in cache
+    List<CachedMethod> get(AnyObjectId blobId) {
+        List<CachedMethod> methods = methodsByKey.get(key(blobId));
+        if (methods == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return methods;
+    }
+
+    void put(AnyObjectId blobId, List<CachedMethod> methods) {
+        methodsByKey.put(key(blobId), methods);
+    }
+
+    long getHitCount() {
+        return hits;
+    }
+
+    long getMissCount() {
+        return misses;
+    }
+
+    int size() {
+        return methodsByKey.size();
+    }
+
+    // Metriche AST di un metodo con lo stesso fingerprint già analizzato, null se non note
+    StaticMetrics getMethod(long fingerprint) {
+        StaticMetrics metrics = metricsByFingerprint.get(fingerprint);
+        if (metrics == null) {
+            methodMisses.increment();
+        } else {
+            methodHits.increment();
+        }
+        return metrics;
+    }
+
+    void putMethod(long fingerprint, StaticMetrics metrics) {
+        metricsByFingerprint.putIfAbsent(fingerprint, metrics);
+    }
+
+    long getMethodHitCount() {
+        return methodHits.sum();
+    }
+
+    long getMethodMissCount() {
+        return methodMisses.sum();
+    }
+
+    // Risultato dell'analisi statica di un metodo, indipendente da path e release
+    static final class CachedMethod {
+        private final String name;
+        private final int startLine;
+        private final int endLine;
+        private final int[] metricValues;
+        private final long fingerprint;
+        private final List<String> smells;
+
+        CachedMethod(String name, MethodInfo info) {
+            this.name = name;
+            this.startLine = info.getStartLine();
+            this.endLine = info.getEndLine();
+            this.metricValues = info.getMetricValues().clone();
+            this.fingerprint = info.getFingerprint();
+            this.smells = List.copyOf(info.getDetectedSmells());
+        }
+
+        // Nome semplice del metodo (senza path)
+        String getName() {
+            return name;
+        }
+
+        // Copia le metriche statiche nel MethodInfo della release corrente
+        void applyTo(MethodInfo info) {
+            info.setStartLine(startLine);
+            info.setEndLine(endLine);
+            info.setMetricValues(metricValues.clone());
+            info.setFingerprint(fingerprint);
+            info.setDetectedSmells(new ArrayList<>(smells));
+            info.setNumberOfSmells(smells.size());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package analyzer.metrics;
+
+import org.eclipse.jgit.lib.ObjectId;
+import util.Configuration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/*
+Tempi di analisi dei singoli file (parsing + metriche e PMD) e quarantena dei file troppo lenti:
+- un file che supera FILE_TIME_BUDGET_MS viene messo in quarantena con i suoi tempi, per id del blob
+- le esecuzioni successive saltano i blob in quarantena; se il file cambia, cambia il blob e torna ad essere analizzato
+- a fine release viene stampato il riepilogo dei file più lenti, e come warning l'elenco dei file saltati
+  (i loro metodi mancano dal dataset di quella release)
+I tempi sono tempo CPU del thread che analizza il file (ThreadMXBean), non wall-clock: con parsing e PMD
+in parallelo un file non sfora il budget per colpa degli altri thread. Se la JVM non misura il tempo CPU
+dei thread si ripiega sul wall-clock.
+La quarantena è un file di testo (blob, ms parsing, ms PMD, path) accanto al repository: si può leggere o svuotare a mano.
+Il file che supera il budget la prima volta viene comunque analizzato fino in fondo (né JavaParser né PMD
+si possono interrompere a metà file): la quarantena limita i tempi delle esecuzioni successive.
+ */
+final class FileTimeBudget {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+    private final File file;
+    private final Map<ObjectId, Entry> quarantine = new LinkedHashMap<>();
+    private final List<Entry> releaseTimings = new ArrayList<>();
+    private final List<String> skippedPaths = new ArrayList<>();
+    private int quarantined;
+    private boolean dirty;
+
+    private FileTimeBudget(File file) {
+        this.file = file;
+    }
+
+    // Tempo CPU del thread corrente in ns (wall-clock se non supportato): va letto inizio e fine sullo stesso thread
+    static long threadTimeNanos() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    // Ricarica la quarantena salvata; se il file non esiste o non è leggibile si parte da vuota
+    static FileTimeBudget load(File file) {
+        FileTimeBudget budget = new FileTimeBudget(file);
+        if (!file.isFile()) return budget;
+
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length < 4 || !ObjectId.isId(fields[0])) continue;
+                ObjectId blobId = ObjectId.fromString(fields[0]);
+                budget.quarantine.put(blobId, new Entry(fields[3], blobId, Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            }
+        } catch (IOException | NumberFormatException e) {
+            Configuration.logger.log(Level.WARNING, "Quarantena dei file non leggibile, si riparte da vuota", e);
+            budget.quarantine.clear();
+        }
+        return budget;
+    }
+
+    // true se il blob va saltato (il path finisce nell'elenco dei file saltati della release)
+    synchronized boolean skip(String path, ObjectId blobId) {
+        if (!quarantine.containsKey(blobId)) return false;
+        skippedPaths.add(path);
+        return true;
+    }
+
+    // Registra i tempi di un file analizzato; oltre il budget il blob va in quarantena
+    synchronized void record(String path, ObjectId blobId, long parseMillis, long pmdMillis) {
+        Entry entry = new Entry(path, blobId.copy(), parseMillis, pmdMillis);
+        releaseTimings.add(entry);
+
+        if (Configuration.FILE_TIME_BUDGET_MS > 0 && entry.total() > Configuration.FILE_TIME_BUDGET_MS
+                && quarantine.putIfAbsent(entry.blobId, entry) == null) {
+            quarantined++;
+            dirty = true;
+            Configuration.logger.warning(String.format("File in quarantena (parsing %d ms, PMD %d ms di CPU, budget %d ms): %s",
+                    parseMillis, pmdMillis, Configuration.FILE_TIME_BUDGET_MS, path));
+        }
+    }
+
+    // Stampa i file più lenti e i file saltati della release, poi riparte da zero
+    synchronized void logAndReset(String release) {
+        if (!skippedPaths.isEmpty()) {
+            StringBuilder missing = new StringBuilder(String.format(
+                    "Release %s: %d file in quarantena saltati, i loro metodi mancano dal dataset:", release, skippedPaths.size()));
+            for (String path : skippedPaths) {
+                missing.append(String.format("%n  %s", path));
+            }
+            Configuration.logger.warning(missing.toString());
+        }
+
+        if (Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)) {
+            releaseTimings.sort(Comparator.comparingLong(Entry::total).reversed());
+            StringBuilder summary = new StringBuilder(String.format(
+                    "File più lenti, release %s (%d analizzati, %d saltati, %d messi in quarantena; ms di CPU di parsing e PMD):",
+                    release, releaseTimings.size(), skippedPaths.size(), quarantined));
+            for (Entry entry : releaseTimings.subList(0, Math.min(Configuration.SLOWEST_FILES_REPORTED, releaseTimings.size()))) {
+                summary.append(String.format("%n  %8d %8d  %s", entry.parseMillis, entry.pmdMillis, entry.path));
+            }
+            Configuration.logger.info(summary.toString());
+        }
+
+        releaseTimings.clear();
+        skippedPaths.clear();
+        quarantined = 0;
+    }
+
+    // Salva la quarantena (scrittura su file temporaneo + rename, per non lasciare file troncati)
+    synchronized void save() {
+        if (!dirty) return;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                for (Entry entry : quarantine.values()) {
+                    out.write(String.format("%s\t%d\t%d\t%s%n", entry.blobId.name(), entry.parseMillis, entry.pmdMillis, entry.path));
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Impossibile salvare la quarantena dei file", e);
+        }
+    }
+
+    // Tempi di un file; il path serve solo per i log
+    private static final class Entry {
+        private final String path;
+        private final ObjectId blobId;
+        private final long parseMillis;
+        private final long pmdMillis;
+
+        private Entry(String path, ObjectId blobId, long parseMillis, long pmdMillis) {
+            this.path = path;
+            this.blobId = blobId;
+            this.parseMillis = parseMillis;
+            this.pmdMillis = pmdMillis;
+        }
+
+        private long total() {
+            return parseMillis + pmdMillis;
+        }
+    }
+}
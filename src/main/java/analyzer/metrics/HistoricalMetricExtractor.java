@@ -1,92 +1,119 @@
 package analyzer.metrics;
 
-import analyzer.model.MethodHistoryStats;
+import analyzer.exception.GitOperationException;
 import analyzer.model.MethodInfo;
 import analyzer.model.Release;
 import analyzer.git.GitRepository;
 import util.Configuration;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-public class HistoricalMetricExtractor {
+/*
+Metriche storiche dei metodi (MethodHistories, StmtAdded, StmtDeleted, Churn, DistinctAuthors), incrementali tra release.
+- le release arrivano in ordine di data: per ogni file si analizzano solo i commit dopo l'ultima release
+  in cui il file è stato analizzato, quindi ogni commit viene diffato una sola volta per file
+- i totali di ogni metodo ripartono da quelli fotografati l'ultima volta per la stessa linea, poi si sommano
+  i commit del nuovo intervallo. Le linee sono per path relativo del file + nome: tra i metodi omonimi si abbina
+  prima per fingerprint (metodo non cambiato), poi per posizione tra le linee rimaste
+- a ogni release i valori scritti nei MethodInfo sono quelli cumulati fino alla sua data
+Le linee non viste in una release (file in quarantena, non parsabile o saltato per errore) restano com'erano:
+quando il file ricompare si riparte dai suoi totali e si recuperano anche i commit dell'intervallo saltato.
+Lo stesso vale se la storia di un file fallisce (lookup dei commit o diff di un commit): i valori di quella release
+sono parziali, ma totali e data di analisi del file non vengono aggiornati, quindi alla release successiva
+l'intervallo si rianalizza dall'ultima data riuscita e nessun commit va perso.
+Un metodo senza linea (nuovo, o in un file rinominato) parte da zero.
+Limite noto: un overload modificato nella stessa release in cui se ne inserisce un altro sopra di lui
+non ha più né fingerprint né posizione in comune con la sua linea, e può prendere la storia dell'altro.
+ */
+public class HistoricalMetricExtractor implements MethodHistoryAnalyzer {
 
     private final GitRepository repo;
 
+    // Linee dei metodi omonimi di un file (path relativo/nome), con i totali all'ultima release in cui sono state viste
+    private final Map<String, List<LineageTotals>> totalsByName = new HashMap<>();
+    // Per file: data dell'ultima release in cui è stato analizzato (i commit fino a quella data sono già contati)
+    private final Map<String, LocalDate> analyzedUntilByFile = new HashMap<>();
+    // Autori visti in tutta la storia: gli insiemi di autori sono BitSet su questi indici
+    private final Map<String, Integer> authorIds = new HashMap<>();
+
     public HistoricalMetricExtractor(GitRepository repo) {
         this.repo = repo;
     }
 
+    // Da chiamare una volta per release, in ordine di data, con i soli metodi della release
+    @Override
     public void analyzeHistoryForMethods(List<MethodInfo> methods, Release release) {
 
         // Raggruppa i metodi per file .java con una mappa
         Map<String, List<MethodInfo>> methodsByFile = methods.stream()
                 .collect(Collectors.groupingBy(m -> extractFilePathFromMethodName(m.getMethodName())));
 
-        // Inizializza mappe di supporto
-        Map<String, MethodHistoryStats> statsMap = new HashMap<>(); // metriche storiche per ogni metodo
-        Map<String, MethodInfo> methodByKey = new HashMap<>(); // collegamento con method info
+        Map<String, List<LineageTotals>> releaseTotals = new HashMap<>();
 
         // Loop su ogni file e i suoi metodi
         for (Map.Entry<String, List<MethodInfo>> entry : methodsByFile.entrySet()) {
 
             String filePath = entry.getKey();
             List<MethodInfo> methodList = entry.getValue();
+            FileHistory history = new FileHistory(filePath, methodList, totalsByName);
 
-            // Costruisce chiave unica per ogni metodo: fullPathMetodo@releaseID#startLine
-            for (MethodInfo m : methodList) {
-                String key = buildMethodKey(m);
-                methodByKey.put(key, m);
-            }
-
+            boolean complete = false;
             try {
-                // Recupera i commit che modificano il file (antecedenti alla release)
-                Iterable<RevCommit> commits = repo.getCommitsTouchingFileBefore(filePath, release.getReleaseDate());
+                // Commit che modificano il file dopo l'ultima release in cui è stato analizzato (fino a questa), dal più recente
+                List<RevCommit> commits = repo.getCommitsTouchingFileBetween(filePath, analyzedUntilByFile.get(filePath), release.getReleaseDate());
 
-                // Analizza il diff tra parent e commit per ogni commit che ha toccato il file.
+                /* Analizza il diff tra parent e commit per ogni commit che ha toccato il file.
+                 Come nel log filtrato per path, il commit che introduce il file non ha predecessori
+                 che lo toccano ed è già escluso dalla lista.
+                 */
                 for (RevCommit commit : commits) {
-                    if (commit.getParentCount() == 0) {
-                        continue;
-                    }
-                    RevCommit parent = repo.parseCommit(commit);
-                    analyzeDiffBetweenCommits(filePath, parent, commit, methodList, statsMap);
+                    analyzeDiffOfCommit(filePath, commit, history);
                 }
+                complete = true;
 
             } catch (Exception e) {
-                Configuration.logger.log(Level.SEVERE,
-                        String.format("Errore analizzando la storia per il file: %s", filePath), e);
+                Configuration.logger.log(Level.SEVERE, String.format(
+                        "Errore analizzando la storia per il file: %s (valori parziali in questa release, intervallo rianalizzato alla prossima)",
+                        filePath), e);
             }
-        }
 
-        // Alla fine, applica i valori raccolti ai MethodInfo
-        for (Map.Entry<String, MethodHistoryStats> entry : statsMap.entrySet()) {
-            String key = entry.getKey();
-            MethodInfo method = methodByKey.get(key);
-            MethodHistoryStats stats = entry.getValue();
-
-            method.setMethodHistories(stats.getMethodHistories()); //  numero commit che modificano il metodo
-            method.setStmtAdded(stats.getStmtAdded()); // linee aggiunte
-            method.setStmtDeleted(stats.getStmtDeleted()); // linee cancellate
-            method.setChurn(stats.getChurn()); //  somma righe modificate
-            method.setDistinctAuthors(stats.getDistinctAuthors()); // autori distinti
+            // Alla fine, applica i valori raccolti ai MethodInfo del file
+            history.applyToMethods();
+            // Solo una storia completa viene fotografata: dopo un errore si riparte dall'ultima release riuscita
+            if (complete) {
+                history.saveTotals(releaseTotals);
+                analyzedUntilByFile.put(filePath, release.getReleaseDate());
+            }
         }
+
+        // Si aggiornano solo le linee dei metodi visti in questa release, le altre restano per le release successive
+        totalsByName.putAll(releaseTotals);
+    }
+
+    // Storia di un file senza totali precedenti, per HistorySweepEquivalenceCheck
+    FileHistory newFileHistory(String filePath, List<MethodInfo> methods) {
+        return new FileHistory(filePath, methods, Map.of());
     }
 
     // Costruttore chiave per il metodo
-    private String buildMethodKey(MethodInfo m) {
+    private static String buildMethodKey(MethodInfo m) {
         return m.getMethodName() + "@" + m.getReleaseId() + "#" + m.getStartLine();
     }
 
     // Pulisce il path del metodo per ottenere il relativo file .java
-    private String extractFilePathFromMethodName(String fullName) {
+    static String extractFilePathFromMethodName(String fullName) {
         int idx = fullName.lastIndexOf(".java");
         if (idx != -1) {
             String relative = fullName.substring(0, idx + 5);
@@ -99,83 +126,276 @@ public class HistoricalMetricExtractor {
         return fullName;
     }
 
-    private void analyzeDiffBetweenCommits(String filePath, RevCommit parent, RevCommit current,
-                                           List<MethodInfo> methods,
-                                           Map<String, MethodHistoryStats> statsMap) {
+    // Un errore nel diff si propaga: il file non va segnato come analizzato fino a questa release
+    private void analyzeDiffOfCommit(String filePath, RevCommit current, FileHistory history) throws GitOperationException {
 
-        //  Crea un oggetto DiffFormatter che analizza le differenze tra due commit
-        try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            // Configura il DiffFormatter
-            df.setRepository(repo.getGit().getRepository());
-            df.setDiffComparator(RawTextComparator.DEFAULT);
-            df.setDetectRenames(true);
+        try {
+            // Estrae la lista degli Edit, cioè le modifiche riga-per-riga nel file (diff condiviso e in cache)
+            List<Edit> edits = repo.getDiffService().getEdits(current, filePath);
+            if (edits.isEmpty()) return;
 
-            // Ottiene la lista dei file modificati tra parent e current
-            List<DiffEntry> diffs = df.scan(parent.getTree(), current.getTree());
+            history.addCommit(edits, current.getAuthorIdent().getName());
 
-            //  Filtra i diff per il file filePath attualmente analizzato
-            for (DiffEntry diff : diffs) {
-                if (!diff.getNewPath().equals(filePath)) continue;
+        } catch (IOException e) {
+            throw new GitOperationException(String.format("Errore nel diff del commit %s", current.getName()), e);
+        }
+    }
 
-                // Estrae la lista degli Edit, cioè le modifiche riga-per-riga nel file
-                List<Edit> edits = df.toFileHeader(diff).toEditList();
+    /*
+    Metriche storiche dei metodi di un file, accumulate in array primitivi.
+    - i metodi sono ordinati per riga di inizio, gli edit di ogni commit per beginB:
+      le sovrapposizioni si trovano con una sola passata (sweep) invece di confrontare ogni metodo con ogni edit
+    - la regola di sovrapposizione e i conteggi sono quelli di sempre:
+      il metodo [start, end) è toccato se l'edit sulla versione nuova [beginB, endB) lo interseca,
+      e in quel caso si sommano le righe aggiunte (lato B) e rimosse (lato A) che cadono nell'intervallo
+    - i metodi con la stessa chiave (nome@release#riga) condividono i totali,
+      che alla fine vengono scritti sull'ultimo MethodInfo con quella chiave
+    - i totali partono da quelli della stessa linea all'ultima release in cui è stata vista
+     */
+    final class FileHistory {
+        private final int[] starts; // per metodo, in ordine di riga di inizio
+        private final int[] ends;
+        private final int[] slotOf; // metodo -> totali condivisi per chiave
+        private final MethodInfo[] slotMethods;
+        private final Map<String, int[]> slotsByName = new LinkedHashMap<>(); // path relativo/nome --> slot in ordine di riga
+        private final Map<String, List<LineageTotals>> unmatched = new HashMap<>(); // linee precedenti non abbinate
+
+        private final int[] histories;
+        private final int[] added;
+        private final int[] deleted;
+        private final BitSet[] authors; // indici in authorIds, creati al primo commit che tocca il metodo
+
+        // Stato del commit corrente, azzerato solo per i metodi toccati
+        private final int[] commitAdded;
+        private final int[] commitDeleted;
+        private final boolean[] commitTouched;
+        private final int[] touched;
+        private final int[] active;
+
+        private FileHistory(String filePath, List<MethodInfo> methods, Map<String, List<LineageTotals>> previousTotals) {
+            int n = methods.size();
+            // Ordine per riga di inizio, stabile rispetto all'ordine dei metodi nel file
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = ((long) methods.get(i).getStartLine() << 32) | i;
+            }
+            Arrays.sort(order);
+
+            starts = new int[n];
+            ends = new int[n];
+            slotOf = new int[n];
+            Map<String, Integer> slotByKey = new HashMap<>();
+            List<MethodInfo> slots = new ArrayList<>();
+            // Lo slot di una chiave va sull'ultimo metodo con quella chiave, nell'ordine originale
+            int[] slotOfOriginal = new int[n];
+            for (int i = 0; i < n; i++) {
+                MethodInfo method = methods.get(i);
+                Integer slot = slotByKey.get(buildMethodKey(method));
+                if (slot == null) {
+                    slot = slots.size();
+                    slotByKey.put(buildMethodKey(method), slot);
+                    slots.add(method);
+                } else {
+                    slots.set(slot, method);
+                }
+                slotOfOriginal[i] = slot;
+            }
+            for (int i = 0; i < n; i++) {
+                int original = (int) order[i];
+                starts[i] = methods.get(original).getStartLine();
+                ends[i] = methods.get(original).getEndLine();
+                slotOf[i] = slotOfOriginal[original];
+            }
+            slotMethods = slots.toArray(new MethodInfo[0]);
+
+            int slotCount = slotMethods.length;
+            histories = new int[slotCount];
+            added = new int[slotCount];
+            deleted = new int[slotCount];
+            authors = new BitSet[slotCount];
+
+            // Slot dei metodi omonimi, in ordine di riga
+            Map<String, List<Integer>> namedSlots = new LinkedHashMap<>();
+            boolean[] grouped = new boolean[slotCount];
+            for (int i = 0; i < n; i++) {
+                int slot = slotOf[i];
+                if (grouped[slot]) continue;
+                grouped[slot] = true;
+                String fullName = slotMethods[slot].getMethodName();
+                String name = filePath + "/" + fullName.substring(fullName.lastIndexOf('/') + 1);
+                namedSlots.computeIfAbsent(name, k -> new ArrayList<>()).add(slot);
+            }
+            for (Map.Entry<String, List<Integer>> entry : namedSlots.entrySet()) {
+                int[] group = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                slotsByName.put(entry.getKey(), group);
+                matchLineages(entry.getKey(), group, previousTotals.getOrDefault(entry.getKey(), List.of()));
+            }
 
-                //  Per ogni metodo nel file corrente
-                for (MethodInfo method : methods) {
-                    calculateStatsForEdit(method, edits, current, statsMap);
+            commitAdded = new int[n];
+            commitDeleted = new int[n];
+            commitTouched = new boolean[n];
+            touched = new int[n];
+            active = new int[n];
+        }
+
+        /*
+        Abbina gli slot omonimi alle linee precedenti: prima per fingerprint, così un metodo non cambiato
+        tiene la sua storia anche se si inserisce un overload sopra di lui, poi per posizione tra le linee rimaste.
+         */
+        private void matchLineages(String name, int[] group, List<LineageTotals> previous) {
+            boolean[] used = new boolean[previous.size()];
+            LineageTotals[] matched = new LineageTotals[group.length];
+
+            for (int g = 0; g < group.length; g++) {
+                long fingerprint = slotMethods[group[g]].getFingerprint();
+                for (int p = 0; p < previous.size(); p++) {
+                    if (!used[p] && previous.get(p).fingerprint == fingerprint) {
+                        used[p] = true;
+                        matched[g] = previous.get(p);
+                        break;
+                    }
                 }
+            }
+            int next = 0;
+            for (int g = 0; g < group.length; g++) {
+                if (matched[g] != null) continue;
+                while (next < used.length && used[next]) next++;
+                if (next == used.length) break;
+                used[next] = true;
+                matched[g] = previous.get(next);
+            }
 
+            for (int g = 0; g < group.length; g++) {
+                LineageTotals totals = matched[g];
+                if (totals == null) continue;
+                int slot = group[g];
+                histories[slot] = totals.histories;
+                added[slot] = totals.added;
+                deleted[slot] = totals.deleted;
+                authors[slot] = totals.authors == null ? null : (BitSet) totals.authors.clone();
             }
 
-        } catch (Exception e) {
-            Configuration.logger.log(Level.SEVERE,
-                    String.format("Errore nel diff tra commit %s e %s", parent.getName(), current.getName()), e);
+            // Le linee non abbinate (es. overload rimosso) restano in coda, per le release successive
+            List<LineageTotals> rest = new ArrayList<>();
+            for (int p = 0; p < used.length; p++) {
+                if (!used[p]) rest.add(previous.get(p));
+            }
+            if (!rest.isEmpty()) unmatched.put(name, rest);
         }
-    }
 
-    private void calculateStatsForEdit(MethodInfo method, List<Edit> edits, RevCommit current, Map<String, MethodHistoryStats> statsMap) {
-        int start = method.getStartLine(); // riga iniziale metodo
-        int end = method.getEndLine(); // riga finale metodo
-        int added = 0;
-        int deleted = 0;
-        boolean touched = false;
-
-        // Loop su ogni Edit
-        for (Edit edit : edits) {
-            // intervallo righe edit nel commit attuale
-            int editStart = edit.getBeginB(); // Riga di inizio nella versione nuova
-            int editEnd = edit.getEndB(); // Riga di fine nella versione nuova
-
-            // se c'è sovrapposizione tra edit e metodo
-            if (editEnd > start && editStart < end) {
-                touched = true;
-
-                // Calcolo righe aggiunte nel metodo
-                int overlapStart = Math.max(editStart, start);
-                int overlapEnd = Math.min(editEnd, end);
-                // Se l’edit è completamente fuori dal metodo, questo valore è negativo e mettiamo 0
-                added += Math.max(0, overlapEnd - overlapStart);
-
-                // Calcolo delle righe rimosse nel metodo
-                int editStartA = edit.getBeginA(); // Riga di inizio nella versione vecchia
-                int editEndA = edit.getEndA(); // Riga di fine nella versione vecchia
-                int overlapStartA = Math.max(editStartA, start);
-                int overlapEndA = Math.min(editEndA, end);
-                deleted += Math.max(0, overlapEndA - overlapStartA);
+        void addCommit(List<Edit> edits, String authorName) {
+            int touchedCount = sweep(sortedByBeginB(edits));
+            if (touchedCount == 0) return;
+
+            int author = authorIds.computeIfAbsent(authorName, k -> authorIds.size());
+            for (int t = 0; t < touchedCount; t++) {
+                int method = touched[t];
+                int slot = slotOf[method];
+                histories[slot]++;
+                added[slot] += commitAdded[method];
+                deleted[slot] += commitDeleted[method];
+                if (authors[slot] == null) authors[slot] = new BitSet();
+                authors[slot].set(author);
+
+                commitAdded[method] = 0;
+                commitDeleted[method] = 0;
+                commitTouched[method] = false;
             }
         }
 
-        /* Se il metodo è stato toccato registra:
-         - numero righe aggiunte
-         - numero righe rimosse
-         - autore commit
+        /*
+        Passata unica su metodi ed edit ordinati. Un metodo entra tra gli attivi quando start < endB
+        dell'edit corrente e ne esce quando end <= beginB: gli edit di un diff non si sovrappongono,
+        quindi non può più toccare gli edit successivi. Restituisce quanti metodi sono stati toccati.
          */
+        private int sweep(Edit[] edits) {
+            int next = 0;
+            int activeCount = 0;
+            int touchedCount = 0;
+
+            for (Edit edit : edits) {
+                int editStart = edit.getBeginB(); // Riga di inizio nella versione nuova
+                int editEnd = edit.getEndB(); // Riga di fine nella versione nuova
+
+                while (next < starts.length && starts[next] < editEnd) {
+                    active[activeCount++] = next++;
+                }
+
+                int kept = 0;
+                for (int a = 0; a < activeCount; a++) {
+                    int method = active[a];
+                    int start = starts[method];
+                    int end = ends[method];
+                    if (end <= editStart) continue; // metodo ormai alle spalle dell'edit
+                    active[kept++] = method;
+                    if (start >= editEnd) continue;
+
+                    if (!commitTouched[method]) {
+                        commitTouched[method] = true;
+                        touched[touchedCount++] = method;
+                    }
+                    // Righe aggiunte nel metodo
+                    commitAdded[method] += Math.max(0, Math.min(editEnd, end) - Math.max(editStart, start));
+                    // Righe rimosse nel metodo (intervallo della versione vecchia)
+                    commitDeleted[method] += Math.max(0, Math.min(edit.getEndA(), end) - Math.max(edit.getBeginA(), start));
+                }
+                activeCount = kept;
+            }
+            return touchedCount;
+        }
 
-        if (touched) {
-            String key = buildMethodKey(method);
-            MethodHistoryStats stats = statsMap.computeIfAbsent(key, k -> new MethodHistoryStats());
-            stats.addEdit(added, deleted, current.getAuthorIdent().getName());
+        // Gli EditList di JGit sono già ordinati per beginB: si ordina solo se non lo sono
+        private static Edit[] sortedByBeginB(List<Edit> edits) {
+            Edit[] sorted = edits.toArray(new Edit[0]);
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i].getBeginB() < sorted[i - 1].getBeginB()) {
+                    Arrays.sort(sorted, Comparator.comparingInt(Edit::getBeginB));
+                    break;
+                }
+            }
+            return sorted;
+        }
+
+        void applyToMethods() {
+            for (int slot = 0; slot < slotMethods.length; slot++) {
+                if (histories[slot] == 0) continue; // metodo mai toccato: restano i valori di default
+                MethodInfo method = slotMethods[slot];
+                method.setMethodHistories(histories[slot]); //  numero commit che modificano il metodo
+                method.setStmtAdded(added[slot]); // linee aggiunte
+                method.setStmtDeleted(deleted[slot]); // linee cancellate
+                method.setChurn(added[slot] + deleted[slot]); //  somma righe modificate
+                method.setDistinctAuthors(authors[slot].cardinality()); // autori distinti
+            }
+        }
+
+        // Totali cumulati di ogni linea (con il fingerprint del metodo), ripresi alla release successiva
+        private void saveTotals(Map<String, List<LineageTotals>> totals) {
+            for (Map.Entry<String, int[]> entry : slotsByName.entrySet()) {
+                List<LineageTotals> lineages = new ArrayList<>();
+                for (int slot : entry.getValue()) {
+                    lineages.add(new LineageTotals(slotMethods[slot].getFingerprint(),
+                            histories[slot], added[slot], deleted[slot], authors[slot]));
+                }
+                lineages.addAll(unmatched.getOrDefault(entry.getKey(), List.of()));
+                totals.put(entry.getKey(), lineages);
+            }
         }
     }
-}
 
+    // Totali di una linea di metodo fotografati a fine release (gli autori non vengono più modificati)
+    private static final class LineageTotals {
+        private final long fingerprint; // del metodo all'ultima release in cui la linea è stata vista
+        private final int histories;
+        private final int added;
+        private final int deleted;
+        private final BitSet authors;
+
+        private LineageTotals(long fingerprint, int histories, int added, int deleted, BitSet authors) {
+            this.fingerprint = fingerprint;
+            this.histories = histories;
+            this.added = added;
+            this.deleted = deleted;
+            this.authors = authors;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package analyzer.metrics;
+
+import analyzer.git.GitRepository;
+import analyzer.git.ReleaseSnapshot;
+import analyzer.jira.GetReleaseInfo;
+import analyzer.model.MethodInfo;
+import analyzer.model.Release;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.slf4j.LoggerFactory;
+import util.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+
+/*
+Confronto tra i due motori delle metriche storiche (diff e blame) sulle release del dataset:
+- l'analisi statica viene fatta una sola volta, registrando i metodi passati all'analisi storica di ogni release
+- ogni motore riparte da metriche storiche azzerate e analizza le release in ordine, cronometrato
+- alla fine stampa i tempi e, per ogni metrica, quanti metodi hanno lo stesso valore e la differenza media
+ */
+public class HistoryEngineBenchmark {
+
+    private static final String[] METRICS = {"MethodHistories", "StmtAdded", "StmtDeleted", "Churn", "DistinctAuthors"};
+    private static final List<ToIntFunction<MethodInfo>> GETTERS = List.of(
+            MethodInfo::getMethodHistories, MethodInfo::getStmtAdded, MethodInfo::getStmtDeleted,
+            MethodInfo::getChurn, MethodInfo::getDistinctAuthors);
+
+    public static void main(String[] args) {
+        setupLoggers();
+
+        GitRepository repo = null;
+        try {
+            List<Release> releases = GetReleaseInfo.getDatasetReleases();
+            repo = new GitRepository(Configuration.getProjectPath());
+
+            // Analisi statica una volta sola: l'analisi storica si limita a registrare i metodi di ogni release
+            List<List<MethodInfo>> batches = new ArrayList<>();
+            List<Release> analyzedReleases = new ArrayList<>();
+            MethodMetricsExtractor extractor = new MethodMetricsExtractor(repo, (methods, release) -> {
+                batches.add(new ArrayList<>(methods));
+                analyzedReleases.add(release);
+            });
+            for (Release release : releases) {
+                RevCommit commit = repo.findLastCommitBefore(release.getReleaseDate());
+                if (commit == null) continue;
+                extractor.setCurrentRelease(release.getName());
+                extractor.setCurrentReleaseDate(release.getReleaseDate());
+                try (ReleaseSnapshot snapshot = repo.openSnapshot(commit)) {
+                    extractor.analyzeSnapshot(snapshot, Configuration.getProjectPath(), release);
+                }
+            }
+
+            int[][] diffValues = run("diff", new HistoricalMetricExtractor(repo), batches, analyzedReleases);
+            int[][] blameValues = run("blame", new BlameHistoryExtractor(repo), batches, analyzedReleases);
+            report(diffValues, blameValues);
+
+        } catch (Exception e) {
+            Configuration.logger.log(Level.SEVERE, "Errore durante il benchmark dei motori storici", e);
+        } finally {
+            if (repo != null) repo.close();
+        }
+    }
+
+    // Esegue un motore su tutte le release e restituisce i valori delle metriche storiche (una riga per metrica)
+    private static int[][] run(String name, MethodHistoryAnalyzer engine,
+                               List<List<MethodInfo>> batches, List<Release> releases) {
+        int methodCount = 0;
+        for (List<MethodInfo> batch : batches) {
+            for (MethodInfo method : batch) {
+                method.setMethodHistories(0);
+                method.setStmtAdded(0);
+                method.setStmtDeleted(0);
+                method.setChurn(0);
+                method.setDistinctAuthors(0);
+            }
+            methodCount += batch.size();
+        }
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < batches.size(); i++) {
+            engine.analyzeHistoryForMethods(batches.get(i), releases.get(i));
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        Configuration.logger.info(String.format("Motore %s: %d release, %d metodi, %d ms",
+                name, batches.size(), methodCount, elapsed));
+
+        int[][] values = new int[METRICS.length][methodCount];
+        int m = 0;
+        for (List<MethodInfo> batch : batches) {
+            for (MethodInfo method : batch) {
+                for (int k = 0; k < METRICS.length; k++) {
+                    values[k][m] = GETTERS.get(k).applyAsInt(method);
+                }
+                m++;
+            }
+        }
+        return values;
+    }
+
+    private static void report(int[][] diffValues, int[][] blameValues) {
+        for (int k = 0; k < METRICS.length; k++) {
+            int n = diffValues[k].length;
+            int equal = 0;
+            long absDiff = 0;
+            for (int i = 0; i < n; i++) {
+                if (diffValues[k][i] == blameValues[k][i]) equal++;
+                absDiff += Math.abs(diffValues[k][i] - blameValues[k][i]);
+            }
+            Configuration.logger.info(String.format("%s: %d/%d metodi con lo stesso valore, differenza media %.2f",
+                    METRICS[k], equal, n, n == 0 ? 0.0 : (double) absDiff / n));
+        }
+    }
+
+    private static void setupLoggers() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("net.sourceforge.pmd")).setLevel(ch.qos.logback.classic.Level.ERROR);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.eclipse.jgit")).setLevel(ch.qos.logback.classic.Level.ERROR);
+    }
+}
@@ -0,0 +1,194 @@
+package analyzer.metrics;
+
+import analyzer.model.MethodInfo;
+import org.eclipse.jgit.diff.Edit;
+import util.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/*
+Confronto tra la passata unica di HistoricalMetricExtractor (FileHistory) e il vecchio doppio ciclo
+metodi x edit (calculateStatsForEdit), riportato qui sotto come riferimento.
+- genera file casuali: metodi annidati o sovrapposti, chiavi duplicate (stesso nome e riga), metodi vuoti
+- per ogni file genera commit casuali con edit validi (non sovrapposti, a volte non ordinati) e autori ripetuti
+- confronta, metodo per metodo, MethodHistories, StmtAdded, StmtDeleted, Churn e DistinctAuthors
+Argomenti opzionali: numero di file (default 20000) e seed (default 42). Termina con codice 1 se trova differenze.
+ */
+public class HistorySweepEquivalenceCheck {
+
+    private static final int MAX_REPORTED = 10;
+    private static final String[] METRICS = {"MethodHistories", "StmtAdded", "StmtDeleted", "Churn", "DistinctAuthors"};
+    private static final List<ToIntFunction<MethodInfo>> GETTERS = List.of(
+            MethodInfo::getMethodHistories, MethodInfo::getStmtAdded, MethodInfo::getStmtDeleted,
+            MethodInfo::getChurn, MethodInfo::getDistinctAuthors);
+
+    public static void main(String[] args) {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        Random random = new Random(seed);
+
+        int methods = 0;
+        int commits = 0;
+        int mismatches = 0;
+        for (int f = 0; f < files; f++) {
+            List<MethodInfo> swept = randomMethods(random, f);
+            List<MethodInfo> reference = copyOf(swept);
+            List<List<Edit>> edits = new ArrayList<>();
+            List<String> authors = new ArrayList<>();
+            int commitCount = 1 + random.nextInt(8);
+            for (int c = 0; c < commitCount; c++) {
+                edits.add(randomEdits(random));
+                authors.add("author" + random.nextInt(4));
+            }
+
+            HistoricalMetricExtractor.FileHistory history = new HistoricalMetricExtractor(null).newFileHistory("File.java", swept);
+            for (int c = 0; c < commitCount; c++) {
+                history.addCommit(edits.get(c), authors.get(c));
+            }
+            history.applyToMethods();
+            applyReference(reference, edits, authors);
+
+            for (int m = 0; m < swept.size(); m++) {
+                for (int k = 0; k < METRICS.length; k++) {
+                    int expected = GETTERS.get(k).applyAsInt(reference.get(m));
+                    int actual = GETTERS.get(k).applyAsInt(swept.get(m));
+                    if (expected != actual && ++mismatches <= MAX_REPORTED) {
+                        Configuration.logger.warning(String.format("File %d (seed %d), metodo %s [%d, %d): %s %d invece di %d",
+                                f, seed, swept.get(m).getMethodName(), swept.get(m).getStartLine(), swept.get(m).getEndLine(),
+                                METRICS[k], actual, expected));
+                    }
+                }
+            }
+            methods += swept.size();
+            commits += commitCount;
+        }
+
+        Configuration.logger.info(String.format("%d file, %d metodi, %d commit confrontati: %d differenze",
+                files, methods, commits, mismatches));
+        if (mismatches > 0) System.exit(1);
+    }
+
+    // Metodi con intervalli [start, end) casuali: possono annidarsi, sovrapporsi o ripetere nome e riga
+    private static List<MethodInfo> randomMethods(Random random, int file) {
+        int count = 1 + random.nextInt(30);
+        List<MethodInfo> methods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MethodInfo method = new MethodInfo();
+            method.setReleaseId("1.0.0");
+            if (i > 0 && random.nextInt(10) == 0) {
+                // Stessa chiave di un metodo precedente (nome@release#riga)
+                MethodInfo twin = methods.get(random.nextInt(i));
+                method.setMethodName(twin.getMethodName());
+                method.setStartLine(twin.getStartLine());
+                method.setEndLine(twin.getStartLine() + random.nextInt(40));
+            } else {
+                int start = random.nextInt(300);
+                method.setMethodName("File.java/m" + random.nextInt(Math.max(1, count / 2)) + "_" + file);
+                method.setStartLine(start);
+                method.setEndLine(start + random.nextInt(60));
+            }
+            methods.add(method);
+        }
+        return methods;
+    }
+
+    private static List<MethodInfo> copyOf(List<MethodInfo> methods) {
+        List<MethodInfo> copy = new ArrayList<>(methods.size());
+        for (MethodInfo method : methods) {
+            MethodInfo clone = new MethodInfo();
+            clone.setMethodName(method.getMethodName());
+            clone.setReleaseId(method.getReleaseId());
+            clone.setStartLine(method.getStartLine());
+            clone.setEndLine(method.getEndLine());
+            copy.add(clone);
+        }
+        return copy;
+    }
+
+    // Edit come quelli di un diff: ordinati e disgiunti su entrambi i lati, a volte restituiti in disordine
+    private static List<Edit> randomEdits(Random random) {
+        List<Edit> edits = new ArrayList<>();
+        int a = random.nextInt(20);
+        int b = random.nextInt(20);
+        int count = random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            int lengthA = random.nextInt(15);
+            int lengthB = lengthA == 0 ? 1 + random.nextInt(15) : random.nextInt(15);
+            edits.add(new Edit(a, a + lengthA, b, b + lengthB));
+            int gap = 1 + random.nextInt(40);
+            a += lengthA + gap;
+            b += lengthB + gap;
+        }
+        if (random.nextInt(5) == 0) Collections.shuffle(edits, random);
+        return edits;
+    }
+
+    // Implementazione di riferimento: per ogni commit, ogni metodo contro ogni edit; totali per chiave
+    private static void applyReference(List<MethodInfo> methods, List<List<Edit>> commits, List<String> authors) {
+        Map<String, ReferenceStats> statsMap = new HashMap<>();
+        Map<String, MethodInfo> methodByKey = new HashMap<>();
+        for (MethodInfo method : methods) {
+            methodByKey.put(buildMethodKey(method), method);
+        }
+        for (int c = 0; c < commits.size(); c++) {
+            for (MethodInfo method : methods) {
+                calculateStatsForEdit(method, commits.get(c), authors.get(c), statsMap);
+            }
+        }
+        for (Map.Entry<String, ReferenceStats> entry : statsMap.entrySet()) {
+            MethodInfo method = methodByKey.get(entry.getKey());
+            ReferenceStats stats = entry.getValue();
+            method.setMethodHistories(stats.histories);
+            method.setStmtAdded(stats.added);
+            method.setStmtDeleted(stats.deleted);
+            method.setChurn(stats.added + stats.deleted);
+            method.setDistinctAuthors(stats.authors.size());
+        }
+    }
+
+    private static void calculateStatsForEdit(MethodInfo method, List<Edit> edits, String author, Map<String, ReferenceStats> statsMap) {
+        int start = method.getStartLine();
+        int end = method.getEndLine();
+        int added = 0;
+        int deleted = 0;
+        boolean touched = false;
+
+        for (Edit edit : edits) {
+            int editStart = edit.getBeginB();
+            int editEnd = edit.getEndB();
+            if (editEnd > start && editStart < end) {
+                touched = true;
+                added += Math.max(0, Math.min(editEnd, end) - Math.max(editStart, start));
+                deleted += Math.max(0, Math.min(edit.getEndA(), end) - Math.max(edit.getBeginA(), start));
+            }
+        }
+
+        if (touched) {
+            ReferenceStats stats = statsMap.computeIfAbsent(buildMethodKey(method), k -> new ReferenceStats());
+            stats.histories++;
+            stats.added += added;
+            stats.deleted += deleted;
+            stats.authors.add(author);
+        }
+    }
+
+    private static String buildMethodKey(MethodInfo m) {
+        return m.getMethodName() + "@" + m.getReleaseId() + "#" + m.getStartLine();
+    }
+
+    // Come il vecchio MethodHistoryStats
+    private static final class ReferenceStats {
+        private int histories;
+        private int added;
+        private int deleted;
+        private final Set<String> authors = new HashSet<>();
+    }
+}
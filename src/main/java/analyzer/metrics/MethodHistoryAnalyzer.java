@@ -0,0 +1,12 @@
+package analyzer.metrics;
+
+import analyzer.model.MethodInfo;
+import analyzer.model.Release;
+
+import java.util.List;
+
+// Calcola le metriche storiche dei metodi di una release: chiamato una volta per release, in ordine di data
+public interface MethodHistoryAnalyzer {
+
+    void analyzeHistoryForMethods(List<MethodInfo> methods, Release release);
+}
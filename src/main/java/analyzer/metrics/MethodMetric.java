@@ -0,0 +1,36 @@
+package analyzer.metrics;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+/*
+Metrica statica di un metodo, una colonna del dataset.
+Ciclo di vita, per ogni metodo: begin, poi le callback registrate durante la visita condivisa, poi end.
+Ogni worker ha le sue istanze (vedi MetricProvider), quindi lo stato può stare in campi normali.
+ */
+public interface MethodMetric {
+
+    // Nome della colonna nel CSV (e quindi nell'ARFF)
+    String getName();
+
+    // Callback sui tipi di nodo che servono alla metrica; chiamato una volta sola, alla creazione del calcolatore
+    default void register(MetricTraversal traversal) {
+        // metrica senza callback: il valore viene dal metodo o dalla scansione
+    }
+
+    // Inizio di un metodo: azzera lo stato accumulato dalle callback
+    default void begin(MethodDeclaration method) {
+        // nessuno stato
+    }
+
+    // Valore della metrica a fine visita
+    int end(MethodScan scan);
+
+    /*
+    true se il valore dipende solo dai token di codice: i metodi con lo stesso fingerprint lo riusano senza visita.
+    false per le metriche che dipendono da impaginazione o commenti: vengono ricalcolate sempre,
+    ma senza visita (le callback non vengono chiamate e scan.getMaxDepth() vale -1).
+     */
+    default boolean isReusableByFingerprint() {
+        return true;
+    }
+}
@@ -1,48 +1,115 @@
 package analyzer.metrics;
 
+import analyzer.git.BlobMethodSource;
 import analyzer.git.GitRepository;
+import analyzer.git.ReleaseSnapshot;
 import analyzer.model.MethodInfo;
+import analyzer.model.MethodTable;
 import analyzer.csv.CsvHandler;
+import analyzer.exception.MetricExtractionException;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import analyzer.model.Release;
 import util.Configuration;
+import util.HistoryEngine;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import net.sourceforge.pmd.*;
 import net.sourceforge.pmd.lang.LanguageRegistry;
 import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
 import net.sourceforge.pmd.reporting.Report;
+import net.sourceforge.pmd.reporting.RuleViolation;
+import org.eclipse.jgit.lib.ObjectId;
 import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 import java.util.stream.Stream;
 
 public class MethodMetricsExtractor {
 
-    private final JavaParser parser = new JavaParser(); // parser per albero file java
-    private final List<MethodInfo> methodInfos = new ArrayList<>(); // lista info metodi analizzati
+    private static final String JAVA_VERSION = "1.6";
+    private static final List<String> PMD_RULESETS = Configuration.PMD_CURATED_RULESET
+            ? List.of("pmd/curated-ruleset.xml") // design + best practices senza le regole che non segnalano metodi
+            : List.of(
+                    "category/java/design.xml", // regole di design
+                    "category/java/bestpractices.xml"); // best practices
+    // Identifica la configurazione PMD: se cambia (anche solo il contenuto di un ruleset), i risultati in cache non valgono più
+    private static final String RULESET_VERSION = PMDVersion.VERSION + ":java-" + JAVA_VERSION + ":" + rulesetChecksums();
+
+    // Nome e CRC32 di ogni ruleset: modificare pmd/curated-ruleset.xml invalida la cache anche se il path resta lo stesso
+    private static String rulesetChecksums() {
+        List<String> parts = new ArrayList<>();
+        for (String ruleset : PMD_RULESETS) {
+            CRC32 crc = new CRC32();
+            try (InputStream in = MethodMetricsExtractor.class.getClassLoader().getResourceAsStream(ruleset)) {
+                if (in != null) crc.update(in.readAllBytes());
+            } catch (IOException e) {
+                Configuration.logger.log(Level.WARNING, String.format("Ruleset %s non leggibile per il checksum", ruleset), e);
+            }
+            parts.add(ruleset + "@" + Long.toHexString(crc.getValue()));
+        }
+        return String.join(",", parts);
+    }
+
+    // JavaParser non è thread-safe: ogni worker usa il proprio parser e il proprio calcolatore
+    private final ThreadLocal<JavaParser> parser = ThreadLocal.withInitial(JavaParser::new);
+    private final MethodTable methodTable = new MethodTable(); // metodi analizzati, a colonne
     private String currentRelease;
     private LocalDate currentReleaseDate;
-    private final HistoricalMetricExtractor historicalExtractor;
+    private final MethodHistoryAnalyzer historicalExtractor;
+    private final GitRepository gitRepository; // per rileggere su richiesta il codice dei metodi
 
     // Inizializza calcolatore metriche statiche
-    private final StaticMetricCalculator staticCalc = new StaticMetricCalculator();
+    private final ThreadLocal<StaticMetricCalculator> staticCalc = ThreadLocal.withInitial(StaticMetricCalculator::new);
+
+    // Metriche statiche per blob già analizzati (file identici tra release)
+    private final FileMetricCache metricCache = new FileMetricCache(RULESET_VERSION);
+    private final PmdRuleProfile ruleProfile = Configuration.PMD_PROFILE ? new PmdRuleProfile() : null;
+    private final FileTimeBudget timeBudget; // tempi per file e quarantena dei file troppo lenti
 
     public MethodMetricsExtractor(GitRepository gitRepository) {
-        // Inizializza calcolatore metriche storiche
-        this.historicalExtractor = new HistoricalMetricExtractor(gitRepository);
+        // Inizializza calcolatore metriche storiche, secondo il motore scelto in configurazione
+        this(gitRepository, Configuration.HISTORY_ENGINE == HistoryEngine.BLAME
+                ? new BlameHistoryExtractor(gitRepository)
+                : new HistoricalMetricExtractor(gitRepository));
+    }
+
+    public MethodMetricsExtractor(GitRepository gitRepository, MethodHistoryAnalyzer historicalExtractor) {
+        this.gitRepository = gitRepository;
+        this.historicalExtractor = historicalExtractor;
+        this.timeBudget = FileTimeBudget.load(gitRepository.getQuarantineFile());
     }
 
+    // Vista MethodInfo dei metodi analizzati finora
     public List<MethodInfo> getAnalyzedMethods() {
-        return methodInfos;
+        return methodTable.asList();
+    }
+
+    public MethodTable getMethodTable() {
+        return methodTable;
     }
 
     public void setCurrentRelease(String releaseId) {
@@ -54,7 +121,7 @@ public class MethodMetricsExtractor {
     }
 
     /* Questo metodo:
-     - Scorre tutti i file .java nel progetto (dopo il checkout nel main di dataset app)
+     - Scorre tutti i file .java nel working tree (dopo il checkout nel main di dataset app)
      - Per farlo esclude alcune directory da non considerare
      - Per ogni file, chiama analyzeFile() per analizzare i metodi
      - Alla fine chiama l'analisi storica sui metodi trovati
@@ -62,132 +129,429 @@ public class MethodMetricsExtractor {
     public void analyzeProject(String projectPath, Release currentRelease) {
 
         int fileCount = 0;
+        int firstMethod = methodTable.size();
 
         List<Path> javaFiles;
         try (Stream<Path> paths = Files.walk(Paths.get(projectPath))) {
             javaFiles = paths
                     .filter(Files::isRegularFile)
-                    .filter(p -> p.toString().endsWith(".java"))
-                    .filter(p -> !p.toString().contains("/target/"))
-                    .filter(p -> !p.toString().contains("/test/"))
-                    .filter(p -> !p.toString().contains("/generated/"))
-                    .filter(p -> !p.toString().contains("/build/"))
+                    .filter(p -> isAnalyzable(p.toString()))
                     .toList(); // Risolve il suggerimento di SonarCloud dello Screenshot 8
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
 
+        // Blob reali del commit in checkout: chiave di cache e quarantena, e riferimento per rileggere il codice dei metodi
+        Map<Path, ObjectId> checkedOutBlobs;
+        try {
+            checkedOutBlobs = gitRepository.getCheckedOutJavaBlobs();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<SourceFile> files = new ArrayList<>(javaFiles.size());
         for (Path path : javaFiles) {
-            analyzeFile(path);
+            SourceFile file = readFile(path, checkedOutBlobs.get(path.toAbsolutePath().normalize()));
+            if (file != null) files.add(file);
             fileCount++;
         }
+        analyzeSources(files);
+
+        completeRelease(fileCount, currentRelease, firstMethod);
+    }
 
+    /* Variante senza checkout:
+     - Legge i file .java direttamente dall'albero del commit di release (ReleaseSnapshot)
+     - Ricostruisce il path come se il file fosse nel working tree, così i nomi dei metodi restano invariati
+     - Applica le stesse esclusioni di analyzeProject()
+     */
+    public void analyzeSnapshot(ReleaseSnapshot snapshot, String projectPath, Release currentRelease) throws IOException {
+
+        int fileCount = 0;
+        int firstMethod = methodTable.size();
+
+        List<SourceFile> files = new ArrayList<>();
+        for (ReleaseSnapshot.Entry entry : snapshot.listJavaFiles()) {
+            Path path = Paths.get(projectPath, entry.getPath());
+            if (!isAnalyzable(path.toString())) continue;
+
+            try {
+                // Blob già visto in una release precedente: il sorgente non serve nemmeno leggerlo
+                SourceFile file = new SourceFile(path, entry.getBlobId(), lookupCache(entry.getBlobId()));
+                if (file.cached == null) {
+                    // Blob in quarantena (troppo lento in un'esecuzione precedente): non viene nemmeno letto
+                    if (timeBudget.skip(path.toString(), entry.getBlobId())) {
+                        fileCount++;
+                        continue;
+                    }
+                    file.source = snapshot.readSource(entry);
+                }
+                files.add(file);
+            } catch (IOException e) {
+                Configuration.logger.log(Level.WARNING, String.format("Errore analisi file: %s", path), e);
+            }
+            fileCount++;
+        }
+        analyzeSources(files);
+
+        completeRelease(fileCount, currentRelease, firstMethod);
+    }
+
+    // Esclude directory di test, build e codice generato
+    private boolean isAnalyzable(String path) {
+        return path.endsWith(".java")
+                && !path.contains("/target/")
+                && !path.contains("/test/")
+                && !path.contains("/generated/")
+                && !path.contains("/build/");
+    }
+
+    // Chiude l'analisi della release lanciando l'analisi storica sui metodi trovati (da firstMethod in poi)
+    private void completeRelease(int fileCount, Release currentRelease, int firstMethod) {
+        List<MethodInfo> releaseMethods = methodTable.rows(firstMethod, methodTable.size());
         if(Configuration.BASIC_DEBUG && Configuration.logger.isLoggable(Level.INFO)){
             Configuration.logger.info(String.format("File .java analizzati: %d", fileCount));
-            Configuration.logger.info(String.format("Chiamo analisi storica su %d metodi.", methodInfos.size()));
+            Configuration.logger.info(String.format("Chiamo analisi storica su %d metodi.", releaseMethods.size()));
+            Configuration.logger.info(String.format("Cache metriche: %d file riusati, %d analizzati, %d blob in cache",
+                    metricCache.getHitCount(), metricCache.getMissCount(), metricCache.size()));
+            Configuration.logger.info(String.format("Cache metriche per metodo: %d metodi riusati per fingerprint, %d calcolati",
+                    metricCache.getMethodHitCount(), metricCache.getMethodMissCount()));
         }
 
-        historicalExtractor.analyzeHistoryForMethods(methodInfos, currentRelease);
+        if (ruleProfile != null) ruleProfile.logAndReset(currentRelease.getName());
+        timeBudget.logAndReset(currentRelease.getName());
+        timeBudget.save();
+
+        historicalExtractor.analyzeHistoryForMethods(releaseMethods, currentRelease);
+    }
+
+    /*
+    Legge un file del working tree; null se non è leggibile (con log) o se il suo blob è in quarantena.
+    blobId è il blob del file nel commit in checkout: se è già in cache il file non viene nemmeno letto.
+    Un file non tracciato (blobId null) non ha un blob da cui rileggere il codice: niente cache né quarantena
+    e il codice dei suoi metodi resta in memoria.
+     */
+    private SourceFile readFile(Path path, ObjectId blobId) {
+        SourceFile file = new SourceFile(path, blobId, blobId == null ? null : lookupCache(blobId));
+        if (file.cached != null) return file;
+        if (blobId != null && timeBudget.skip(path.toString(), blobId)) return null;
+        try {
+            file.source = Files.readString(path, StandardCharsets.UTF_8);
+            return file;
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, String.format("Errore analisi file: %s", path), e);
+            return null;
+        }
+    }
 
+    private List<FileMetricCache.CachedMethod> lookupCache(ObjectId blobId) {
+        return Configuration.USE_METRIC_CACHE ? metricCache.get(blobId) : null;
+    }
 
+    /*
+    Analizza i file della release nell'ordine dato:
+    - una sola PmdAnalysis (multi-thread) su tutti i file non in cache, con le violazioni divise per file
+    - poi parsing + metriche dei file non in cache, in parallelo su ANALYSIS_THREADS worker
+    - infine i risultati vengono raccolti nell'ordine dei file, come in un'esecuzione sequenziale
+    I tempi di ogni file (parsing + metriche e PMD) finiscono in timeBudget.
+    I file su cui PMD ha dato errore non vanno in cache: le loro violazioni sono incomplete.
+     */
+    private void analyzeSources(List<SourceFile> files) {
+        Map<String, Long> pmdMillisByFile = new ConcurrentHashMap<>();
+        Set<String> pmdFailedFiles = ConcurrentHashMap.newKeySet();
+        Map<String, ViolationIndex> violationsByFile = runPmd(files, pmdMillisByFile, pmdFailedFiles);
+
+        List<FileResult> results = analyzeInParallel(files, violationsByFile);
+
+        for (int i = 0; i < files.size(); i++) {
+            SourceFile file = files.get(i);
+            if (file.cached != null) {
+                materializeFromCache(file.path, file.blobId, file.cached);
+                continue;
+            }
+            FileResult result = results.get(i);
+            if (result == null) continue;
+            for (MethodInfo info : result.methods) {
+                addMethod(info);
+            }
+            if (file.blobId == null) continue; // file non tracciato
+            timeBudget.record(file.path.toString(), file.blobId, result.elapsedMillis,
+                    pmdMillisByFile.getOrDefault(file.fileId.getAbsolutePath(), 0L));
+            if (result.cached != null && !pmdFailedFiles.contains(file.fileId.getAbsolutePath())) {
+                cacheResult(file.blobId, result.cached);
+            }
+        }
     }
 
-    // Cerca metodi nel file
-    private void analyzeFile(Path path) {
+    /*
+    Analizza i file non in cache con un pool limitato di thread.
+    La lista restituita è allineata a files (null per i file in cache o falliti),
+    quindi l'ordine dei metodi non dipende da quale worker finisce prima.
+     */
+    private List<FileResult> analyzeInParallel(List<SourceFile> files, Map<String, ViolationIndex> violationsByFile) {
+        List<FileResult> results = new ArrayList<>(Collections.nCopies(files.size(), null));
+        int threads = Math.max(1, Configuration.ANALYSIS_THREADS);
+
+        if (threads == 1) {
+            for (int i = 0; i < files.size(); i++) {
+                SourceFile file = files.get(i);
+                if (file.cached == null) {
+                    results.set(i, analyzeSource(file.path, file.blobId, file.source, violationsOf(file, violationsByFile)));
+                }
+            }
+            return results;
+        }
 
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>(Collections.nCopies(files.size(), null));
+            for (int i = 0; i < files.size(); i++) {
+                SourceFile file = files.get(i);
+                if (file.cached == null) {
+                    ViolationIndex violations = violationsOf(file, violationsByFile);
+                    futures.set(i, pool.submit(() -> analyzeSource(file.path, file.blobId, file.source, violations)));
+                }
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i) == null) continue;
+                try {
+                    results.set(i, futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Configuration.logger.log(Level.WARNING,
+                            String.format("Errore analisi file: %s", files.get(i).path), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Configuration.logger.info("Analisi dei file interrotta");
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private static ViolationIndex violationsOf(SourceFile file, Map<String, ViolationIndex> violationsByFile) {
+        return violationsByFile.getOrDefault(file.fileId.getAbsolutePath(), ViolationIndex.EMPTY);
+    }
+
+    /*
+    Esegue PMD una volta sola sui file da analizzare e indicizza le violazioni per file (ordinate per riga).
+    Se l'analisi PMD fallisce la release non può essere completata: senza violazioni ogni metodo avrebbe 0 smell
+    e quei valori finirebbero in cache per le release successive.
+     */
+    private Map<String, ViolationIndex> runPmd(List<SourceFile> files, Map<String, Long> pmdMillisByFile, Set<String> pmdFailedFiles) {
+        Map<String, ViolationIndex> violationsByFile = new HashMap<>();
+
+        LanguageVersion javaVersion = LanguageRegistry.PMD.getLanguageVersionById("java", JAVA_VERSION);
+        PMDConfiguration config = new PMDConfiguration();
+        config.setDefaultLanguageVersion(javaVersion);
+        config.setThreads(Configuration.PMD_THREADS);
+        for (String ruleset : PMD_RULESETS) {
+            config.addRuleSet(ruleset);
+        }
+        if (Configuration.PMD_ANALYSIS_CACHE) {
+            // I file con lo stesso contenuto dell'ultima esecuzione riprendono le violazioni dalla cache
+            File cacheFile = gitRepository.getPmdCacheFile(currentRelease);
+            cacheFile.getParentFile().mkdirs();
+            config.setAnalysisCacheLocation(cacheFile.getPath());
+        }
+
+        try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
+            int added = 0;
+            for (SourceFile file : files) {
+                if (file.cached == null) {
+                    pmd.files().addSourceFile(file.fileId, file.source);
+                    added++;
+                }
+            }
+            if (added == 0) return violationsByFile;
+            pmd.addListener(new FileTimingListener(pmdMillisByFile, pmdFailedFiles));
+
+            if (ruleProfile != null) ruleProfile.startTiming();
+            Report report = pmd.performAnalysisAndCollectReport();
+            if (ruleProfile != null) ruleProfile.stopTiming();
+
+            Map<String, List<RuleViolation>> grouped = new HashMap<>();
+            for (RuleViolation violation : report.getViolations()) {
+                grouped.computeIfAbsent(violation.getFileId().getAbsolutePath(), k -> new ArrayList<>()).add(violation);
+                if (ruleProfile != null) ruleProfile.countViolation(violation.getRule().getName());
+            }
+            for (Map.Entry<String, List<RuleViolation>> entry : grouped.entrySet()) {
+                violationsByFile.put(entry.getKey(), ViolationIndex.of(entry.getValue()));
+            }
+        } catch (Exception e) {
+            throw new MetricExtractionException("Errore analisi PMD nella release " + currentRelease, e);
+        }
+        return violationsByFile;
+    }
+
+    /*
+    Misura il tempo CPU di PMD per ogni file (dall'inizio alla chiusura dell'analisi del file, che avvengono
+    sul thread che lo analizza)
+    e registra con il path gli errori di PMD sui singoli file, che altrimenti finirebbero solo nel report
+    (i file con errori vengono segnati, così i loro risultati non finiscono in cache).
+     */
+    private static final class FileTimingListener implements GlobalAnalysisListener {
+        private final Map<String, Long> pmdMillisByFile;
+        private final Set<String> pmdFailedFiles;
+
+        private FileTimingListener(Map<String, Long> pmdMillisByFile, Set<String> pmdFailedFiles) {
+            this.pmdMillisByFile = pmdMillisByFile;
+            this.pmdFailedFiles = pmdFailedFiles;
+        }
+
+        @Override
+        public FileAnalysisListener startFileAnalysis(TextFile textFile) {
+            String fileKey = textFile.getFileId().getAbsolutePath();
+            long startTime = FileTimeBudget.threadTimeNanos();
+            return new FileAnalysisListener() {
+                @Override
+                public void onRuleViolation(RuleViolation violation) {
+                    // le violazioni arrivano dal report
+                }
+
+                @Override
+                public void onError(Report.ProcessingError error) {
+                    pmdFailedFiles.add(fileKey);
+                    Configuration.logger.warning(String.format("Errore PMD nel file %s: %s", fileKey, error.getMsg()));
+                }
+
+                @Override
+                public void close() {
+                    pmdMillisByFile.put(fileKey, (FileTimeBudget.threadTimeNanos() - startTime) / 1_000_000);
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // niente da chiudere
+        }
+    }
+
+    /*
+    Ricostruisce i metodi di un file dalla cache (blob già analizzato).
+    Cambiano solo path (nel nome del metodo) e release; l'ordine dei metodi è quello dell'analisi originale.
+     */
+    private void materializeFromCache(Path path, ObjectId blobId, List<FileMetricCache.CachedMethod> cached) {
+        for (FileMetricCache.CachedMethod method : cached) {
+            MethodInfo info = newMethodInfo(path, method.getName());
+            method.applyTo(info);
+            info.setMethodSource(new BlobMethodSource(gitRepository, blobId, info.getStartLine(), info.getEndLine()));
+            addMethod(info);
+        }
+    }
+
+    private void cacheResult(ObjectId blobId, List<FileMetricCache.CachedMethod> methods) {
+        if (Configuration.USE_METRIC_CACHE) {
+            metricCache.put(blobId, methods);
+        }
+    }
+
+    /*
+    Analizza il sorgente di un file già in memoria, usando le violazioni PMD già calcolate per il file.
+    Non modifica lo stato condiviso: può girare su un worker, i risultati vengono aggiunti dal chiamante.
+     */
+    private FileResult analyzeSource(Path path, ObjectId blobId, String source, ViolationIndex violations) {
+
+        FileResult result = new FileResult();
+        long startTime = FileTimeBudget.threadTimeNanos(); // tempo CPU del worker, non risente degli altri thread
         try {
 
             // Parsing del file per ottenere struttura ad albero del source code (AST)
-            CompilationUnit cu = parser.parse(path).getResult().orElse(null);
-            if (cu == null) return;
+            CompilationUnit cu = parser.get().parse(source).getResult().orElse(null);
+            if (cu == null) {
+                result.cached = List.of();
+                return result;
+            }
 
             // Cerca dichiarazioni di metodi nel file
             List<MethodDeclaration> methods = cu.findAll(MethodDeclaration.class);
-            if (methods.isEmpty()) return;
-
-            // Configura PMD per analisi smells
-            LanguageVersion javaVersion = LanguageRegistry.PMD.getLanguageVersionById("java", "1.6");
-            Files.readString(path, StandardCharsets.UTF_8);
-            PMDConfiguration config = new PMDConfiguration();
-            config.setDefaultLanguageVersion(javaVersion);
-            config.addRuleSet("category/java/design.xml"); // regole di design
-            config.addRuleSet("category/java/bestpractices.xml"); // best practices
-            config.addInputPath(path);
-
-            // Avvia PMD
-            try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
-
-                Report report = pmd.performAnalysisAndCollectReport();
-
-                // Loop su ogni metodo
-                for (MethodDeclaration method : methods) {
-
-                    // Calcolo metriche statiche
-                    MethodInfo info = analyzeMethod(method, path);
-                    if (info == null) continue;
-
-                    // Salva informazioni su dove inizia e finisce il metodo
-                    int start = method.getBegin().map(p -> p.line).orElse(-1);
-                    int end = method.getEnd().map(p -> p.line).orElse(-1);
-                    info.setStartLine(start);
-                    info.setEndLine(end);
-
-                    // Salva codice del metodo (utile per refactoring)
-                    info.setMethodCode(method.toString());
-
-                    // Filtra tutti i code smells che cadono dentro il metodo e ne restituisce il nome
-                    List<String> smellNames = report.getViolations().stream()
-                            .filter(v -> v.getBeginLine() >= start && v.getBeginLine() <= end)
-                            .map(v -> v.getRule().getName())
-                            .distinct()
-                            .toList();
-
-                    info.setDetectedSmells(smellNames); // Imposta nome smell trovati nel metodo
-                    info.setNumberOfSmells(smellNames.size()); // Imposta numero di code smell per il databset
-
-                    methodInfos.add(info);
-
-                    if (Configuration.BASIC_DEBUG && methodInfos.size() % 1000 == 0) {
-                        String debugPath = Configuration.getDebugSampledMethodsPath();
-                        MethodInfo sampled = methodInfos.get(methodInfos.size() - 1);
-                        logDebugSample(methodInfos.size(), sampled, debugPath);
-                    }
+            if (methods.isEmpty()) {
+                result.cached = List.of();
+                return result;
+            }
+
+            // Risultati del file, salvati in cache solo se l'analisi arriva in fondo
+            List<FileMetricCache.CachedMethod> cached = new ArrayList<>(methods.size());
+
+            // Loop su ogni metodo
+            for (MethodDeclaration method : methods) {
+
+                // Calcolo metriche statiche
+                MethodInfo info = analyzeMethod(method, path);
+                if (info == null) continue;
 
+                // Salva informazioni su dove inizia e finisce il metodo
+                int start = method.getBegin().map(p -> p.line).orElse(-1);
+                int end = method.getEnd().map(p -> p.line).orElse(-1);
+                info.setStartLine(start);
+                info.setEndLine(end);
+
+                // Riferimento al codice del metodo (utile per refactoring): blob + righe, il testo si carica su richiesta
+                if (blobId != null) {
+                    info.setMethodSource(new BlobMethodSource(gitRepository, blobId, start, end));
+                } else {
+                    info.setMethodCode(BlobMethodSource.extractLines(source, start, end)); // file non tracciato
                 }
+
+                // Nomi distinti dei code smells che cadono dentro il metodo (ricerca binaria sull'indice)
+                List<String> smellNames = violations.smellsBetween(start, end);
+
+                info.setDetectedSmells(smellNames); // Imposta nome smell trovati nel metodo
+                info.setNumberOfSmells(smellNames.size()); // Imposta numero di code smell per il databset
+
+                cached.add(new FileMetricCache.CachedMethod(method.getNameAsString(), info));
+                result.methods.add(info);
+
             }
+            result.cached = cached;
 
         } catch (Exception e) {
-            Configuration.logger.info("Errore analisi file");
+            Configuration.logger.log(Level.WARNING, String.format("Errore analisi file: %s", path), e);
+        } finally {
+            result.elapsedMillis = (FileTimeBudget.threadTimeNanos() - startTime) / 1_000_000;
         }
+        return result;
     }
 
 
-    // Analizza un singolo metodo e ne calcola tutte le metriche
-    private MethodInfo analyzeMethod(MethodDeclaration method, Path path) {
+    // Aggiunge un metodo ai risultati, copiandolo nella tabella (con campionamento di debug ogni 1000 metodi)
+    private void addMethod(MethodInfo info) {
+        methodTable.add(info);
+        if (ruleProfile != null) ruleProfile.countMethod(info.getDetectedSmells());
 
-        try {
+        if (Configuration.BASIC_DEBUG && methodTable.size() % 1000 == 0) {
+            String debugPath = Configuration.getDebugSampledMethodsPath();
+            logDebugSample(methodTable.size(), info, debugPath);
+        }
+    }
+
+    // Oggetto che contiene dati e valori delle metriche di un metodo, con i campi legati a path e release
+    private MethodInfo newMethodInfo(Path path, String methodName) {
+        MethodInfo info = new MethodInfo();
 
-            // Oggetto che contiene dati e valori delle metriche di un metodo
-            MethodInfo info = new MethodInfo();
+        info.setProjectName(Configuration.getProjectColumn()); // nome progetto
+        info.setMethodName(path.toString() + "/" + methodName); // path completo + nome metodo
+        info.setReleaseId(currentRelease); // release ID
+        info.setReleaseDate(currentReleaseDate); // data della release
 
-            info.setProjectName(Configuration.getProjectColumn()); // nome progetto
-            info.setMethodName(path.toString() + "/" + method.getNameAsString()); // path completo + nome metodo
-            info.setReleaseId(currentRelease); // release ID
-            info.setReleaseDate(currentReleaseDate); // data della release
+        // Target, per ora impostiamo sempre false
+        info.setBugginess(false);
 
+        return info;
+    }
 
-            // Metriche statiche:
-            info.setLoc(staticCalc.calculateLoc(method)); // LOC
-            info.setCyclomaticComplexity(staticCalc.calculateCyclomaticComplexity(method)); // Cyclomatic Complexity
-            info.setCognitiveComplexity(staticCalc.calculateCognitiveComplexity(method)); // Cognitive Complexity
-            info.setParameterCount(staticCalc.calculateParameterCount(method)); // Parameter Count
-            info.setNestingDepth(staticCalc.calculateNestingDepth(method)); // Nesting Depth
-            info.setStatementCount(staticCalc.calculateStatementCount(method)); // Statement Count
-            info.setReturnTypeComplexity(staticCalc.calculateReturnTypeComplexity(method)); // Return Type Complexity
-            info.setLocalVariableCount(staticCalc.calculateLocalVariableCount(method)); // Local Variable Count
+    // Analizza un singolo metodo e ne calcola tutte le metriche
+    private MethodInfo analyzeMethod(MethodDeclaration method, Path path) {
 
-            // Target, per ora impostiamo sempre false
-            info.setBugginess(false);
+        try {
+
+            MethodInfo info = newMethodInfo(path, method.getNameAsString());
+
+            // Metriche statiche, calcolate con una sola visita dell'AST del metodo
+            // (metodi con fingerprint già noto riusano i valori in cache)
+            staticCalc.get().calculateAll(method, Configuration.USE_METRIC_CACHE ? metricCache : null).applyTo(info);
 
             return info;
 
@@ -198,10 +562,33 @@ public class MethodMetricsExtractor {
         }
     }
 
+    // File .java di una release: sorgente da analizzare oppure risultato già in cache
+    private static final class SourceFile {
+        private final Path path;
+        private final FileId fileId;
+        private final ObjectId blobId; // null per i file non tracciati (solo in modalità checkout)
+        private final List<FileMetricCache.CachedMethod> cached; // null se il blob va analizzato
+        private String source; // letto solo se il blob non è in cache
+
+        private SourceFile(Path path, ObjectId blobId, List<FileMetricCache.CachedMethod> cached) {
+            this.path = path;
+            this.fileId = FileId.fromPath(path);
+            this.blobId = blobId;
+            this.cached = cached;
+        }
+    }
+
+    // Metodi trovati in un file; cached resta null se l'analisi si è interrotta (il file non va in cache)
+    private static final class FileResult {
+        private final List<MethodInfo> methods = new ArrayList<>();
+        private List<FileMetricCache.CachedMethod> cached;
+        private long elapsedMillis; // parsing + metriche del file
+    }
+
     // Esporta il contenuto analizzato nel file CSV
     public void exportResults(String outputPath) {
         CsvHandler csvHandler = new CsvHandler();
-        csvHandler.writeCsv(outputPath, methodInfos);
+        csvHandler.writeCsv(outputPath, methodTable);
     }
 
     // Metodo per debug
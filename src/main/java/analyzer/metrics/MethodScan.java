@@ -0,0 +1,30 @@
+package analyzer.metrics;
+
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+// Dati di un metodo calcolati una volta sola e condivisi da tutte le metriche
+public final class MethodScan {
+
+    private final MethodDeclaration method;
+    private final int loc;
+    private final int commentLines;
+    private final int maxDepth;
+
+    MethodScan(MethodDeclaration method, int loc, int commentLines, int maxDepth) {
+        this.method = method;
+        this.loc = loc;
+        this.commentLines = commentLines;
+        this.maxDepth = maxDepth;
+    }
+
+    public MethodDeclaration getMethod() { return method; }
+
+    // Righe di codice nel sorgente originale (vedi StaticMetricCalculator.calculateLoc)
+    public int getLoc() { return loc; }
+
+    // Righe di soli commenti, Javadoc compreso
+    public int getCommentLines() { return commentLines; }
+
+    // Profondità massima di nesting raggiunta nella visita; -1 se il metodo non è stato visitato
+    public int getMaxDepth() { return maxDepth; }
+}
@@ -1,5 +1,6 @@
 package analyzer.metrics;
 
+import analyzer.csv.DatasetLayout;
 import analyzer.model.MethodInfo;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
@@ -18,6 +19,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
+import java.util.stream.IntStream;
 
 public class MetricAnalyzerEngine {
 
@@ -80,28 +82,19 @@ public class MetricAnalyzerEngine {
         List<MethodInfo> results = new ArrayList<>();
         try (PmdAnalysis pmd = PmdAnalysis.create(config)) {
             Report report = pmd.performAnalysisAndCollectReport();
+            ViolationIndex violations = ViolationIndex.of(report.getViolations());
 
             for (MethodDeclaration method : methods) {
                 MethodInfo info = new MethodInfo();
                 info.setMethodName(method.getNameAsString());
 
-                // Calcolo metriche
-                info.setLoc(staticCalc.calculateLoc(method));
-                info.setCyclomaticComplexity(staticCalc.calculateCyclomaticComplexity(method));
-                info.setCognitiveComplexity(staticCalc.calculateCognitiveComplexity(method));
-                info.setParameterCount(staticCalc.calculateParameterCount(method));
-                info.setNestingDepth(staticCalc.calculateNestingDepth(method));
-                info.setStatementCount(staticCalc.calculateStatementCount(method));
-                info.setReturnTypeComplexity(staticCalc.calculateReturnTypeComplexity(method));
-                info.setLocalVariableCount(staticCalc.calculateLocalVariableCount(method));
+                // Calcolo metriche (una sola visita dell'AST)
+                staticCalc.calculateAll(method).applyTo(info);
 
                 int start = method.getBegin().map(p -> p.line).orElse(-1);
                 int end = method.getEnd().map(p -> p.line).orElse(-1);
 
-                List<String> smellNames = report.getViolations().stream()
-                        .filter(v -> v.getBeginLine() >= start && v.getBeginLine() <= end)
-                        .map(v -> v.getRule().getName())
-                        .distinct().toList();
+                List<String> smellNames = violations.smellsBetween(start, end);
 
                 info.setDetectedSmells(smellNames);
                 info.setNumberOfSmells(smellNames.size());
@@ -111,16 +104,24 @@ public class MetricAnalyzerEngine {
         return results;
     }
 
+    /*
+    Stesse colonne di metriche e smell del dataset, nello stesso ordine (DatasetLayout): prima le originali,
+    poi quelle aggiunte dopo; SmellTypes resta ultima perché contiene ';'
+     */
     private static void saveToCsv(String outputName, List<MethodInfo> results) throws Exception {
+        int[] columns = IntStream.concat(IntStream.of(DatasetLayout.getOriginalColumns()),
+                IntStream.of(DatasetLayout.getAddedColumns())).toArray();
         new File("ml_results").mkdirs();
         try (FileWriter fw = new FileWriter(outputName)) {
-            fw.write("Method;LOC;Cyclomatic;Cognitive;ParameterCount;NestingDepth;StatementCount;ReturnTypeComplexity;LocalVarCount;Smells;SmellTypes\n");
+            fw.write("Method;" + String.join(";", DatasetLayout.namesOf(columns)) + ";SmellTypes\n");
             for (MethodInfo m : results) {
-                fw.write(String.format("%s;%d;%d;%d;%d;%d;%d;%d;%d;%d;\"%s\"%n",
-                        m.getMethodName(), m.getLoc(), m.getCyclomaticComplexity(), m.getCognitiveComplexity(),
-                        m.getParameterCount(), m.getNestingDepth(), m.getStatementCount(),
-                        m.getReturnTypeComplexity(), m.getLocalVariableCount(), m.getNumberOfSmells(),
-                        String.join(";", m.getDetectedSmells())));
+                StringBuilder row = new StringBuilder(m.getMethodName());
+                int[] values = m.getMetricValues();
+                for (int column : columns) {
+                    row.append(';').append(column == DatasetLayout.NUMBER_OF_SMELLS ? m.getNumberOfSmells() : values[column]);
+                }
+                row.append(";\"").append(String.join(";", m.getDetectedSmells())).append('"');
+                fw.write(row.append(System.lineSeparator()).toString());
             }
         }
     }
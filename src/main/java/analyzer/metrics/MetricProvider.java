@@ -0,0 +1,14 @@
+package analyzer.metrics;
+
+import java.util.List;
+
+/*
+Fornitore di metriche statiche, caricato con ServiceLoader: per aggiungere metriche basta un'implementazione
+elencata in META-INF/services/analyzer.metrics.MetricProvider, senza toccare calcolatore, modello ed export.
+Le colonne delle metriche fornite vengono accodate nei CSV dopo quelle predefinite, nell'ordine dei fornitori e della lista.
+ */
+public interface MetricProvider {
+
+    // Nuove istanze delle metriche: chiamato una volta per ogni calcolatore (cioè per worker)
+    List<MethodMetric> createMetrics();
+}
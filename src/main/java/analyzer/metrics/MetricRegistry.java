@@ -0,0 +1,68 @@
+package analyzer.metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/*
+Insieme delle metriche statiche registrate:
+prima quelle predefinite (BuiltinMetrics, indici fissi qui sotto), poi quelle dei MetricProvider trovati da ServiceLoader.
+I valori di un metodo sono un int[] allineato a questo ordine (StaticMetrics, MethodInfo, MethodTable).
+L'ordine delle colonne nei CSV è un altro: le colonne originali restano al loro posto (vedi DatasetLayout).
+ */
+public final class MetricRegistry {
+
+    public static final int LOC = 0;
+    public static final int COMMENT_LINES = 1;
+    public static final int CYCLOMATIC_COMPLEXITY = 2;
+    public static final int COGNITIVE_COMPLEXITY = 3;
+    public static final int PARAMETER_COUNT = 4;
+    public static final int NESTING_DEPTH = 5;
+    public static final int STATEMENT_COUNT = 6;
+    public static final int LOCAL_VARIABLE_COUNT = 7;
+    public static final int RETURN_TYPE_COMPLEXITY = 8;
+
+    private static final List<MetricProvider> PROVIDERS = loadProviders();
+    private static final List<String> NAMES = loadNames();
+
+    private MetricRegistry() {}
+
+    private static List<MetricProvider> loadProviders() {
+        List<MetricProvider> providers = new ArrayList<>();
+        providers.add(new BuiltinMetrics());
+        ServiceLoader.load(MetricProvider.class).forEach(providers::add);
+        return List.copyOf(providers);
+    }
+
+    private static List<String> loadNames() {
+        List<String> names = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (MethodMetric metric : newMetrics()) {
+            if (!seen.add(metric.getName())) {
+                throw new IllegalStateException("Metrica registrata due volte: " + metric.getName());
+            }
+            names.add(metric.getName());
+        }
+        return List.copyOf(names);
+    }
+
+    // Nomi delle colonne, nell'ordine dei valori
+    public static List<String> getNames() {
+        return NAMES;
+    }
+
+    public static int size() {
+        return NAMES.size();
+    }
+
+    // Nuove istanze di tutte le metriche, per un calcolatore
+    static List<MethodMetric> newMetrics() {
+        List<MethodMetric> metrics = new ArrayList<>();
+        for (MetricProvider provider : PROVIDERS) {
+            metrics.addAll(provider.createMetrics());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,82 @@
+package analyzer.metrics;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Visita unica dell'albero di un metodo, condivisa da tutte le metriche registrate.
+- ogni metrica registra callback per tipo di nodo (vale anche per le sottoclassi, es. Node.class per tutti i nodi)
+- ogni nodo viene visitato una volta e passato solo alle callback del suo tipo, risolte una volta per classe
+- la profondità passata alle callback è il nesting delle strutture di controllo
+  (if, for, foreach, while, do, switch, try, catch), come in calculateNestingDepth
+Aggiungere una metrica aggiunge callback, non un'altra visita dell'albero.
+ */
+public final class MetricTraversal {
+
+    @FunctionalInterface
+    public interface NodeCallback<T extends Node> {
+        void visit(T node, int depth);
+    }
+
+    private static final NodeCallback<?>[] NONE = new NodeCallback<?>[0];
+
+    private final Map<Class<?>, List<NodeCallback<Node>>> registered = new HashMap<>();
+    private final Map<Class<?>, NodeCallback<?>[]> resolved = new HashMap<>(); // per classe concreta del nodo
+    private int maxDepth;
+
+    MetricTraversal() {
+        // Creato dal calcolatore, insieme alle sue metriche
+    }
+
+    public <T extends Node> void on(Class<T> type, NodeCallback<? super T> callback) {
+        registered.computeIfAbsent(type, k -> new ArrayList<>()).add((node, depth) -> callback.visit(type.cast(node), depth));
+        resolved.clear();
+    }
+
+    // Visita il metodo e restituisce la profondità massima di nesting
+    int run(MethodDeclaration method) {
+        maxDepth = 0;
+        visit(method, 0);
+        return maxDepth;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visit(Node node, int depth) {
+        maxDepth = Math.max(maxDepth, depth);
+
+        for (NodeCallback<?> callback : callbacksFor(node.getClass())) {
+            ((NodeCallback<Node>) callback).visit(node, depth);
+        }
+
+        int childDepth = isNesting(node) ? depth + 1 : depth;
+        for (Node child : node.getChildNodes()) {
+            visit(child, childDepth);
+        }
+    }
+
+    // Callback registrate per la classe o per una sua superclasse
+    private NodeCallback<?>[] callbacksFor(Class<?> nodeClass) {
+        NodeCallback<?>[] callbacks = resolved.get(nodeClass);
+        if (callbacks == null) {
+            List<NodeCallback<Node>> found = new ArrayList<>();
+            for (Class<?> type = nodeClass; type != null; type = type.getSuperclass()) {
+                found.addAll(registered.getOrDefault(type, List.of()));
+            }
+            callbacks = found.isEmpty() ? NONE : found.toArray(NONE);
+            resolved.put(nodeClass, callbacks);
+        }
+        return callbacks;
+    }
+
+    private static boolean isNesting(Node node) {
+        return node instanceof IfStmt || node instanceof ForStmt || node instanceof ForEachStmt
+                || node instanceof WhileStmt || node instanceof DoStmt || node instanceof SwitchStmt
+                || node instanceof TryStmt || node instanceof CatchClause;
+    }
+}
@@ -0,0 +1,66 @@
+package analyzer.metrics;
+
+import net.sourceforge.pmd.benchmark.TextTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimingReport;
+import util.Configuration;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+/*
+Profilo delle regole PMD di una release (attivo con PMD_PROFILE):
+- violazioni segnalate da ogni regola nel report PMD
+- metodi del dataset che hanno la regola tra gli smell, cioè quanto la regola arriva davvero alle feature
+- tempi per regola misurati dal TimeTracker di PMD, nel suo formato testuale
+Una regola con violazioni ma 0 metodi costa tempo senza cambiare il dataset: è candidata al ruleset curato.
+Violazioni e tempi coprono solo i file passati a PMD in questa esecuzione. Con PMD_ANALYSIS_CACHE = true,
+in una nuova esecuzione i tempi contano solo i file non in cache, mentre le violazioni in cache vengono ripresentate.
+I file serviti dalla cache delle metriche non arrivano proprio a PMD.
+Per un profilo completo serve PMD_ANALYSIS_CACHE = false, con la cache delle metriche vuota o disattivata.
+ */
+final class PmdRuleProfile {
+
+    private final Map<String, int[]> countsByRule = new TreeMap<>(); // regola -> {violazioni, metodi}
+    private final StringWriter timings = new StringWriter();
+
+    void startTiming() {
+        TimeTracker.startGlobalTracking();
+    }
+
+    void stopTiming() {
+        TimingReport report = TimeTracker.stopGlobalTracking();
+        try {
+            new TextTimingReportRenderer().render(report, timings);
+        } catch (IOException e) {
+            Configuration.logger.log(Level.WARNING, "Impossibile stampare i tempi delle regole PMD", e);
+        }
+    }
+
+    void countViolation(String rule) {
+        countsByRule.computeIfAbsent(rule, k -> new int[2])[0]++;
+    }
+
+    void countMethod(List<String> smells) {
+        for (String rule : smells) {
+            countsByRule.computeIfAbsent(rule, k -> new int[2])[1]++;
+        }
+    }
+
+    // Stampa il profilo della release e riparte da zero
+    void logAndReset(String release) {
+        StringBuilder table = new StringBuilder(String.format("Profilo regole PMD, release %s (regola: violazioni, metodi)", release));
+        for (Map.Entry<String, int[]> entry : countsByRule.entrySet()) {
+            table.append(String.format("%n  %-45s %8d %8d", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        Configuration.logger.info(table.toString());
+        Configuration.logger.info(String.format("Tempi regole PMD, release %s:%n%s", release, timings));
+
+        countsByRule.clear();
+        timings.getBuffer().setLength(0);
+    }
+}
@@ -1,5 +1,8 @@
 package analyzer.metrics;
 
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.Range;
+import com.github.javaparser.TokenRange;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.ConditionalExpr;
@@ -8,28 +11,201 @@ import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.type.Type;
 
+import java.util.List;
+import java.util.Optional;
+
 // Questa classe calcola le metriche statiche per un metodo Java
 public class StaticMetricCalculator {
 
+    // Metriche registrate (istanze di questo calcolatore) e visita condivisa su cui hanno registrato le callback
+    private final List<MethodMetric> metrics = MetricRegistry.newMetrics();
+    private final MetricTraversal traversal = new MetricTraversal();
+
+    public StaticMetricCalculator() {
+        for (MethodMetric metric : metrics) {
+            metric.register(traversal);
+        }
+    }
 
     /*
-     Conta le righe effettive di codice, escludendo:
-     - parentesi graffe isolate
-     - righe vuote
-     - commenti inline (//...)
+    Calcola tutte le metriche registrate (MetricRegistry) con una sola visita dell'albero.
+    Per le metriche predefinite i risultati sono gli stessi dei singoli metodi calculateXxx qui sotto,
+    che restano come riferimento:
+    - la visita tocca gli stessi nodi di findAll (il metodo stesso e tutti i discendenti)
+    - la profondità di nesting è quella di calculateNestingDepthRecursive
+    - LOC, righe di commento e fingerprint vengono dai token del sorgente originale (vedi TokenScan)
      */
-    public int calculateLoc(MethodDeclaration method) {
-        String[] lines = method.toString().split("\\r?\\n");
-        int loc = 0;
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (!trimmed.isEmpty() && !trimmed.equals("{") && !trimmed.equals("}") && !trimmed.startsWith("//")) {
-                loc++;
+    public StaticMetrics calculateAll(MethodDeclaration method) {
+        return calculateAll(method, null);
+    }
+
+    /*
+    Come sopra, ma se un metodo con lo stesso fingerprint è già in cache riusa i valori delle metriche
+    riusabili (stessi token significa stesso albero) e salta la visita. Le altre (LOC e righe di commento
+    dipendono dall'impaginazione) vengono sempre ricalcolate dalla scansione dei token.
+     */
+    StaticMetrics calculateAll(MethodDeclaration method, FileMetricCache cache) {
+        TokenScan scan = TokenScan.of(method);
+        boolean cacheable = cache != null && scan.fingerprint != 0;
+
+        StaticMetrics known = cacheable ? cache.getMethod(scan.fingerprint) : null;
+        StaticMetrics result;
+        if (known != null) {
+            result = known.copy();
+            MethodScan lines = new MethodScan(method, scan.loc, scan.commentLines, -1);
+            for (int i = 0; i < metrics.size(); i++) {
+                MethodMetric metric = metrics.get(i);
+                if (!metric.isReusableByFingerprint()) {
+                    metric.begin(method);
+                    result.values[i] = metric.end(lines);
+                }
+            }
+        } else {
+            for (MethodMetric metric : metrics) {
+                metric.begin(method);
+            }
+            int maxDepth = traversal.run(method);
+
+            MethodScan methodScan = new MethodScan(method, scan.loc, scan.commentLines, maxDepth);
+            result = new StaticMetrics(metrics.size());
+            for (int i = 0; i < metrics.size(); i++) {
+                result.values[i] = metrics.get(i).end(methodScan);
+            }
+            result.fingerprint = scan.fingerprint;
+            if (cacheable) cache.putMethod(scan.fingerprint, result.copy());
+        }
+        return result;
+    }
+
+    /*
+    Scorre una volta i token del metodo, senza ristampare il codice.
+    Righe (del file originale, non della forma normalizzata del pretty printer):
+    - ogni riga toccata da un token di codice è una riga di codice
+    - una riga che contiene solo una graffa isolata non conta (come in passato)
+    - una riga toccata solo da commenti è una riga di commento
+    Alle righe di commento si aggiunge il commento attaccato al metodo (Javadoc), che sta fuori dai suoi token.
+    Fingerprint: hash FNV-1a a 64 bit di tipo e testo dei token di codice, quindi non cambia
+    se cambiano solo spazi, a capo o commenti. 0 se il metodo non ha token.
+     */
+    private static final class TokenScan {
+        private static final int LBRACE = JavaToken.Kind.LBRACE.getKind();
+        private static final int RBRACE = JavaToken.Kind.RBRACE.getKind();
+        private static final byte NO_CODE = 0;
+        private static final byte LONE_BRACE = 1;
+        private static final byte CODE = 2;
+        private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private int loc;
+        private int commentLines;
+        private long fingerprint;
+
+        private static TokenScan of(MethodDeclaration method) {
+            TokenScan scan = new TokenScan();
+            Optional<TokenRange> tokens = method.getTokenRange();
+            Optional<Range> range = method.getRange();
+            if (tokens.isEmpty() || range.isEmpty()) {
+                // Nodo senza token (costruito a mano e non parsato): unica via è il testo stampato
+                scan.loc = countLoc(method.toString());
+                return scan;
+            }
+            scan.scan(tokens.get(), range.get().begin.line, range.get().end.line);
+            method.getComment().flatMap(Node::getRange)
+                    .ifPresent(r -> scan.commentLines += r.end.line - r.begin.line + 1);
+            return scan;
+        }
+
+        private void scan(TokenRange tokens, int firstLine, int lastLine) {
+            int lineCount = lastLine - firstLine + 1;
+            byte[] code = new byte[lineCount];
+            boolean[] comment = new boolean[lineCount];
+            long hash = FNV_OFFSET;
+
+            for (JavaToken token : tokens) {
+                JavaToken.Category category = token.getCategory();
+                if (category.isWhitespace()) continue;
+                Optional<Range> tokenRange = token.getRange();
+                if (tokenRange.isEmpty()) continue;
+                int from = Math.max(0, tokenRange.get().begin.line - firstLine);
+                int to = Math.min(lineCount - 1, tokenRange.get().end.line - firstLine);
+
+                if (category.isComment()) {
+                    for (int line = from; line <= to; line++) comment[line] = true;
+                    continue;
+                }
+                hash = mix(hash, token.getKind());
+                String text = token.getText();
+                for (int i = 0; i < text.length(); i++) {
+                    hash = mix(hash, text.charAt(i));
+                }
+
+                boolean brace = from == to && (token.getKind() == LBRACE || token.getKind() == RBRACE);
+                for (int line = from; line <= to; line++) {
+                    code[line] = brace && code[line] == NO_CODE ? LONE_BRACE : CODE;
+                }
+            }
+            // 0 è riservato a "nessun fingerprint"
+            fingerprint = hash == 0 ? 1 : hash;
+
+            for (int line = 0; line < lineCount; line++) {
+                // Graffa seguita da un commento: la riga non è vuota, conta come prima
+                if (code[line] == CODE || (code[line] == LONE_BRACE && comment[line])) {
+                    loc++;
+                } else if (code[line] == NO_CODE && comment[line]) {
+                    commentLines++;
+                }
             }
         }
+
+        private static long mix(long hash, int value) {
+            return (hash ^ value) * FNV_PRIME;
+        }
+    }
+
+    // Regole di calculateLoc applicate al testo stampato, usate solo per nodi senza token
+    private static int countLoc(String text) {
+        int loc = 0;
+        int lineStart = 0;
+        int length = text.length();
+        while (lineStart <= length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd == -1) lineEnd = length;
+            if (isCodeLine(text, lineStart, lineEnd)) loc++;
+            lineStart = lineEnd + 1;
+        }
         return loc;
     }
 
+    private static boolean isCodeLine(String text, int from, int to) {
+        // trim(): salta spazi e caratteri di controllo (compreso il \r di \r\n) ai due estremi
+        while (from < to && text.charAt(from) <= ' ') from++;
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        int length = to - from;
+        if (length == 0) return false;
+        if (length == 1 && (text.charAt(from) == '{' || text.charAt(from) == '}')) return false;
+        return !text.startsWith("//", from);
+    }
+
+    /*
+     Conta le righe effettive di codice nel sorgente originale, escludendo:
+     - parentesi graffe isolate
+     - righe vuote
+     - righe di soli commenti
+     */
+    public int calculateLoc(MethodDeclaration method) {
+        return TokenScan.of(method).loc;
+    }
+
+    // Conta le righe di soli commenti del metodo, Javadoc compreso
+    public int calculateCommentLines(MethodDeclaration method) {
+        return TokenScan.of(method).commentLines;
+    }
+
+    // Hash dei token di codice del metodo: uguale per metodi che differiscono solo per spazi e commenti
+    public long calculateFingerprint(MethodDeclaration method) {
+        return TokenScan.of(method).fingerprint;
+    }
+
     /*
     Calcola la complessita ciclomatica, parte da 1 e aggiunge:
     - if, for, foreach, while, do
@@ -122,7 +298,7 @@ public class StaticMetricCalculator {
     1 per tipi primitivi o nominali semplici
     +1 per ogni array o parametro generico annidato
      */
-    private int computeTypeComplexity(Type type) {
+    static int computeTypeComplexity(Type type) {
         if (type.isPrimitiveType()) return 1;
         if (type.isArrayType()) return 1 + computeTypeComplexity(type.asArrayType().getComponentType());
 
@@ -0,0 +1,52 @@
+package analyzer.metrics;
+
+import analyzer.model.MethodInfo;
+
+// Metriche statiche di un metodo, calcolate insieme da StaticMetricCalculator.calculateAll
+public final class StaticMetrics {
+
+    final int[] values; // allineato a MetricRegistry
+    long fingerprint;
+
+    StaticMetrics(int size) {
+        // Valorizzato solo dal calcolatore
+        this.values = new int[size];
+    }
+
+    // Valore della metrica all'indice dato (vedi le costanti di MetricRegistry)
+    public int get(int metric) { return values[metric]; }
+
+    public int getLoc() { return values[MetricRegistry.LOC]; }
+
+    public int getCommentLines() { return values[MetricRegistry.COMMENT_LINES]; }
+
+    public int getCyclomaticComplexity() { return values[MetricRegistry.CYCLOMATIC_COMPLEXITY]; }
+
+    public int getCognitiveComplexity() { return values[MetricRegistry.COGNITIVE_COMPLEXITY]; }
+
+    public int getParameterCount() { return values[MetricRegistry.PARAMETER_COUNT]; }
+
+    public int getNestingDepth() { return values[MetricRegistry.NESTING_DEPTH]; }
+
+    public int getStatementCount() { return values[MetricRegistry.STATEMENT_COUNT]; }
+
+    public int getReturnTypeComplexity() { return values[MetricRegistry.RETURN_TYPE_COMPLEXITY]; }
+
+    public int getLocalVariableCount() { return values[MetricRegistry.LOCAL_VARIABLE_COUNT]; }
+
+    public long getFingerprint() { return fingerprint; }
+
+    // Copia indipendente, per i valori condivisi dalla cache dei fingerprint
+    StaticMetrics copy() {
+        StaticMetrics copy = new StaticMetrics(values.length);
+        System.arraycopy(values, 0, copy.values, 0, values.length);
+        copy.fingerprint = fingerprint;
+        return copy;
+    }
+
+    // Copia le metriche nel MethodInfo
+    public void applyTo(MethodInfo info) {
+        info.setMetricValues(values.clone());
+        info.setFingerprint(fingerprint);
+    }
+}
@@ -0,0 +1,110 @@
+package analyzer.metrics;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import util.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+/*
+Confronto differenziale tra StaticMetricCalculator.calculateAll e i metodi calculateXxx di riferimento.
+- analizza tutti i file .java dei due progetti (o delle directory passate come argomenti)
+- per ogni metodo confronta ogni metrica predefinita e il fingerprint, sia con la visita condivisa
+  sia con i valori riusati dalla cache dei fingerprint (una FileMetricCache comune a tutti i file)
+- stampa i primi disallineamenti e il riepilogo per progetto; termina con codice 1 se ce n'è almeno uno
+ */
+public class StaticMetricsDifferentialCheck {
+
+    private static final int MAX_REPORTED = 20;
+
+    private static final String[] NAMES = {"LOC", "CommentLines", "CyclomaticComplexity", "CognitiveComplexity",
+            "ParameterCount", "NestingDepth", "StatementCount", "LocalVariableCount", "ReturnTypeComplexity"};
+    private static final int[] INDEXES = {MetricRegistry.LOC, MetricRegistry.COMMENT_LINES,
+            MetricRegistry.CYCLOMATIC_COMPLEXITY, MetricRegistry.COGNITIVE_COMPLEXITY, MetricRegistry.PARAMETER_COUNT,
+            MetricRegistry.NESTING_DEPTH, MetricRegistry.STATEMENT_COUNT, MetricRegistry.LOCAL_VARIABLE_COUNT,
+            MetricRegistry.RETURN_TYPE_COMPLEXITY};
+
+    private final StaticMetricCalculator calculator = new StaticMetricCalculator();
+    private final List<ToIntFunction<MethodDeclaration>> references = List.of(
+            calculator::calculateLoc, calculator::calculateCommentLines, calculator::calculateCyclomaticComplexity,
+            calculator::calculateCognitiveComplexity, calculator::calculateParameterCount,
+            calculator::calculateNestingDepth, calculator::calculateStatementCount,
+            calculator::calculateLocalVariableCount, calculator::calculateReturnTypeComplexity);
+    private final FileMetricCache cache = new FileMetricCache("differential-check");
+    private final JavaParser parser = new JavaParser();
+
+    private int methods;
+    private int reused;
+    private int mismatches;
+
+    public static void main(String[] args) {
+        List<String> roots = args.length > 0
+                ? List.of(args)
+                : List.of(Configuration.PROJECT1_PATH, Configuration.PROJECT2_PATH);
+
+        int totalMismatches = 0;
+        for (String root : roots) {
+            StaticMetricsDifferentialCheck check = new StaticMetricsDifferentialCheck();
+            try {
+                check.run(Paths.get(root));
+            } catch (IOException e) {
+                Configuration.logger.log(Level.SEVERE, String.format("Errore leggendo i sorgenti di %s", root), e);
+                System.exit(2);
+            }
+            Configuration.logger.info(String.format("%s: %d metodi confrontati (%d con valori riusati dalla cache), %d disallineamenti",
+                    root, check.methods, check.reused, check.mismatches));
+            totalMismatches += check.mismatches;
+        }
+        if (totalMismatches > 0) System.exit(1);
+    }
+
+    private void run(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p)).sorted().forEach(files::add);
+        }
+
+        for (Path file : files) {
+            CompilationUnit cu = parser.parse(file).getResult().orElse(null);
+            if (cu == null) continue;
+            for (MethodDeclaration method : cu.findAll(MethodDeclaration.class)) {
+                compare(file, method);
+            }
+        }
+    }
+
+    private void compare(Path file, MethodDeclaration method) {
+        methods++;
+        long fingerprint = calculator.calculateFingerprint(method);
+        if (fingerprint != 0 && cache.getMethod(fingerprint) != null) reused++;
+
+        StaticMetrics shared = calculator.calculateAll(method);
+        StaticMetrics cached = calculator.calculateAll(method, cache);
+        for (int m = 0; m < NAMES.length; m++) {
+            int expected = references.get(m).applyAsInt(method);
+            check(file, method, NAMES[m], expected, shared.get(INDEXES[m]), "visita");
+            check(file, method, NAMES[m], expected, cached.get(INDEXES[m]), "cache");
+        }
+        check(file, method, "Fingerprint", fingerprint, shared.getFingerprint(), "visita");
+        check(file, method, "Fingerprint", fingerprint, cached.getFingerprint(), "cache");
+    }
+
+    private void check(Path file, MethodDeclaration method, String metric, long expected, long actual, String source) {
+        if (expected == actual) return;
+        mismatches++;
+        if (mismatches <= MAX_REPORTED) {
+            Configuration.logger.warning(String.format("%s %s (riga %d), %s da %s: %d invece di %d",
+                    file, method.getNameAsString(), method.getBegin().map(p -> p.line).orElse(-1),
+                    metric, source, actual, expected));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package analyzer.metrics;
+
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Violazioni PMD di un file ordinate per riga di inizio, in array primitivi.
+- beginLines[i] è la riga della violazione i, ruleIds[i] l'indice della regola in ruleNames
+- a parità di riga resta l'ordine del report, quindi gli smell escono nello stesso ordine di prima
+Gli smell di un metodo si trovano con una ricerca binaria sulla riga iniziale più una scansione
+fino alla riga finale, invece di scorrere tutte le violazioni del file per ogni metodo.
+ */
+final class ViolationIndex {
+
+    static final ViolationIndex EMPTY = new ViolationIndex(new int[0], new int[0], new String[0]);
+
+    // Nomi delle regole condivisi tra file e release: ogni nome esiste in una sola copia
+    private static final Map<String, String> RULE_NAMES = new ConcurrentHashMap<>();
+
+    private final int[] beginLines;
+    private final int[] ruleIds;
+    private final String[] ruleNames;
+
+    private ViolationIndex(int[] beginLines, int[] ruleIds, String[] ruleNames) {
+        this.beginLines = beginLines;
+        this.ruleIds = ruleIds;
+        this.ruleNames = ruleNames;
+    }
+
+    // Costruisce l'indice dalle violazioni di un solo file (nell'ordine del report)
+    static ViolationIndex of(List<RuleViolation> violations) {
+        if (violations.isEmpty()) return EMPTY;
+
+        int n = violations.size();
+        List<String> names = new ArrayList<>();
+        // Ordina coppie (riga, posizione) impacchettate in un long: stabile rispetto all'ordine del report
+        long[] keys = new long[n];
+        int[] ruleOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            RuleViolation violation = violations.get(i);
+            keys[i] = ((long) violation.getBeginLine() << 32) | i;
+            String name = intern(violation.getRule().getName());
+            int id = indexOfIdentity(names, name);
+            if (id == -1) {
+                names.add(name);
+                id = names.size() - 1;
+            }
+            ruleOf[i] = id;
+        }
+        Arrays.sort(keys);
+
+        int[] beginLines = new int[n];
+        int[] ruleIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            beginLines[i] = (int) (keys[i] >>> 32);
+            ruleIds[i] = ruleOf[(int) keys[i]];
+        }
+        return new ViolationIndex(beginLines, ruleIds, names.toArray(new String[0]));
+    }
+
+    private static String intern(String name) {
+        return RULE_NAMES.computeIfAbsent(name, k -> k);
+    }
+
+    // Le regole di un file sono poche: basta un confronto per identità sui nomi già internati
+    private static int indexOfIdentity(List<String> names, String name) {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i) == name) return i;
+        }
+        return -1;
+    }
+
+    // Nomi distinti delle regole violate con riga di inizio in [startLine, endLine]
+    List<String> smellsBetween(int startLine, int endLine) {
+        int i = lowerBound(startLine);
+        if (i == beginLines.length || beginLines[i] > endLine) return Collections.emptyList();
+
+        boolean[] seen = new boolean[ruleNames.length];
+        List<String> smells = new ArrayList<>();
+        for (; i < beginLines.length && beginLines[i] <= endLine; i++) {
+            int rule = ruleIds[i];
+            if (!seen[rule]) {
+                seen[rule] = true;
+                smells.add(ruleNames[rule]);
+            }
+        }
+        return Collections.unmodifiableList(smells);
+    }
+
+    // Primo indice con riga >= line
+    private int lowerBound(int line) {
+        int lo = 0;
+        int hi = beginLines.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (beginLines[mid] < line) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    int size() {
+        return beginLines.length;
+    }
+}
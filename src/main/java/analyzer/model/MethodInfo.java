@@ -1,5 +1,7 @@
 package analyzer.model;
 
+import analyzer.metrics.MetricRegistry;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,48 +10,66 @@ public class MethodInfo {
     private String projectName;
     private String methodName;
     private String releaseId;
-    private int loc;
-    private int cyclomaticComplexity;
-    private int cognitiveComplexity;
     private int numberOfSmells;
-    private int parameterCount;
-    private int nestingDepth;
     private int methodHistories;
     private int stmtAdded;
     private int stmtDeleted;
     private int churn;
     private boolean bugginess;
-    private String methodCode;
-    private List<String> detectedSmells = new ArrayList<>();
+    private MethodSource methodSource; // riferimento leggero al codice, caricato su richiesta
+    private List<String> detectedSmells;
     private int startLine;
     private int endLine;
     private LocalDate releaseDate;
-    private int statementCount;
     private int distinctAuthors;
-    private int returnTypeComplexity;
-    private int localVariableCount;
+    private int[] metricValues; // metriche statiche, allineate a MetricRegistry
+    private long fingerprint; // hash dei token del metodo: identità stabile tra release se il codice non cambia
 
     public MethodInfo() {
-        // Basic constructor
+        this.metricValues = new int[MetricRegistry.size()];
+        this.detectedSmells = new ArrayList<>();
+    }
+
+    // Per le righe di MethodTable: i valori stanno nelle colonne della tabella, i campi restano vuoti
+    protected MethodInfo(MethodTable table) {
+        // nessun campo da inizializzare
     }
 
-    public int getStatementCount() { return statementCount; }
-    public void setStatementCount(int statementCount) { this.statementCount = statementCount; }
+    public int getStatementCount() { return getMetric(MetricRegistry.STATEMENT_COUNT); }
+    public void setStatementCount(int statementCount) { setMetric(MetricRegistry.STATEMENT_COUNT, statementCount); }
 
     public int getDistinctAuthors() { return distinctAuthors; }
     public void setDistinctAuthors(int distinctAuthors) { this.distinctAuthors = distinctAuthors; }
 
-    public int getReturnTypeComplexity() { return returnTypeComplexity; }
-    public void setReturnTypeComplexity(int returnTypeComplexity) { this.returnTypeComplexity = returnTypeComplexity; }
+    public int getReturnTypeComplexity() { return getMetric(MetricRegistry.RETURN_TYPE_COMPLEXITY); }
+    public void setReturnTypeComplexity(int returnTypeComplexity) { setMetric(MetricRegistry.RETURN_TYPE_COMPLEXITY, returnTypeComplexity); }
+
+    public int getLocalVariableCount() { return getMetric(MetricRegistry.LOCAL_VARIABLE_COUNT); }
+    public void setLocalVariableCount(int localVariableCount) { setMetric(MetricRegistry.LOCAL_VARIABLE_COUNT, localVariableCount); }
+
+    // Valore della metrica statica all'indice dato di MetricRegistry (anche metriche aggiunte dai MetricProvider)
+    public int getMetric(int metric) { return metricValues[metric]; }
+    public void setMetric(int metric, int value) { metricValues[metric] = value; }
 
-    public int getLocalVariableCount() { return localVariableCount; }
-    public void setLocalVariableCount(int localVariableCount) { this.localVariableCount = localVariableCount; }
+    // Tutti i valori delle metriche statiche (da non modificare: per le righe di MethodTable è una copia)
+    public int[] getMetricValues() { return metricValues; }
+    public void setMetricValues(int[] metricValues) { this.metricValues = metricValues; }
 
+    public long getFingerprint() { return fingerprint; }
+    public void setFingerprint(long fingerprint) { this.fingerprint = fingerprint; }
+
+    public LocalDate getReleaseDate() { return releaseDate; }
     public void setReleaseDate(LocalDate releaseDate) { this.releaseDate = releaseDate; }
 
-    public String getMethodCode() { return methodCode; }
+    public String getMethodCode() {
+        MethodSource source = getMethodSource();
+        return source == null ? null : source.load();
+    }
+
+    public void setMethodCode(String methodCode) { setMethodSource(() -> methodCode); }
 
-    public void setMethodCode(String methodCode) { this.methodCode = methodCode; }
+    public MethodSource getMethodSource() { return methodSource; }
+    public void setMethodSource(MethodSource methodSource) { this.methodSource = methodSource; }
 
     public String getProjectName() {
         return projectName;
@@ -73,29 +93,21 @@ public class MethodInfo {
         this.releaseId = releaseId;
     }
 
-    public int getLoc() {
-        return loc;
-    }
+    public int getLoc() { return getMetric(MetricRegistry.LOC); }
 
-    public void setLoc(int loc) {
-        this.loc = loc;
-    }
+    public void setLoc(int loc) { setMetric(MetricRegistry.LOC, loc); }
 
-    public int getCyclomaticComplexity() {
-        return cyclomaticComplexity;
-    }
+    public int getCommentLines() { return getMetric(MetricRegistry.COMMENT_LINES); }
 
-    public void setCyclomaticComplexity(int cyclomaticComplexity) {
-        this.cyclomaticComplexity = cyclomaticComplexity;
-    }
+    public void setCommentLines(int commentLines) { setMetric(MetricRegistry.COMMENT_LINES, commentLines); }
 
-    public int getCognitiveComplexity() {
-        return cognitiveComplexity;
-    }
+    public int getCyclomaticComplexity() { return getMetric(MetricRegistry.CYCLOMATIC_COMPLEXITY); }
 
-    public void setCognitiveComplexity(int cognitiveComplexity) {
-        this.cognitiveComplexity = cognitiveComplexity;
-    }
+    public void setCyclomaticComplexity(int cyclomaticComplexity) { setMetric(MetricRegistry.CYCLOMATIC_COMPLEXITY, cyclomaticComplexity); }
+
+    public int getCognitiveComplexity() { return getMetric(MetricRegistry.COGNITIVE_COMPLEXITY); }
+
+    public void setCognitiveComplexity(int cognitiveComplexity) { setMetric(MetricRegistry.COGNITIVE_COMPLEXITY, cognitiveComplexity); }
 
     public int getNumberOfSmells() {
         return numberOfSmells;
@@ -105,21 +117,13 @@ public class MethodInfo {
         this.numberOfSmells = numberOfSmells;
     }
 
-    public int getParameterCount() {
-        return parameterCount;
-    }
+    public int getParameterCount() { return getMetric(MetricRegistry.PARAMETER_COUNT); }
 
-    public void setParameterCount(int parameterCount) {
-        this.parameterCount = parameterCount;
-    }
+    public void setParameterCount(int parameterCount) { setMetric(MetricRegistry.PARAMETER_COUNT, parameterCount); }
 
-    public int getNestingDepth() {
-        return nestingDepth;
-    }
+    public int getNestingDepth() { return getMetric(MetricRegistry.NESTING_DEPTH); }
 
-    public void setNestingDepth(int nestingDepth) {
-        this.nestingDepth = nestingDepth;
-    }
+    public void setNestingDepth(int nestingDepth) { setMetric(MetricRegistry.NESTING_DEPTH, nestingDepth); }
 
     public int getMethodHistories() {
         return methodHistories;
@@ -0,0 +1,8 @@
+package analyzer.model;
+
+// Riferimento al codice di un metodo: il testo viene caricato solo quando qualcuno lo chiede
+public interface MethodSource {
+
+    // Testo del metodo, null se non è più recuperabile
+    String load();
+}
@@ -0,0 +1,316 @@
+package analyzer.model;
+
+import analyzer.metrics.MetricRegistry;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/*
+Tabella a colonne delle coppie metodo-release del dataset, al posto di una List<MethodInfo>.
+- metriche e righe in array di int, una colonna per valore (le metriche statiche seguono MetricRegistry)
+- progetto, nome del metodo, release e nomi degli smell codificati con dizionari: ogni stringa esiste
+  una volta sola, anche se lo stesso metodo compare in tutte le release
+- data di release per release (non per riga), bugginess in un BitSet
+- il codice resta un MethodSource per riga (riferimento al blob, caricato su richiesta)
+Per il codice esistente ogni riga si può vedere come MethodInfo (row, asList, rows): la vista non copia
+niente e legge/scrive direttamente nelle colonne, quindi analisi storica ed etichettatura la aggiornano.
+Le viste sono oggetti leggeri creati al momento: due viste della stessa riga sono equals.
+ */
+public final class MethodTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_SMELLS = new int[0];
+
+    private final Dictionary projects = new Dictionary();
+    private final Dictionary methods = new Dictionary();
+    private final Dictionary releases = new Dictionary();
+    private final Dictionary smellNames = new Dictionary();
+    private final List<LocalDate> releaseDates = new ArrayList<>(); // per id di release
+
+    private int size;
+    private int[] projectIds = new int[INITIAL_CAPACITY];
+    private int[] methodIds = new int[INITIAL_CAPACITY];
+    private int[] releaseIds = new int[INITIAL_CAPACITY];
+    private final int[][] metrics = new int[MetricRegistry.size()][INITIAL_CAPACITY]; // [metrica][riga]
+    private int[] numberOfSmells = new int[INITIAL_CAPACITY];
+    private int[] methodHistories = new int[INITIAL_CAPACITY];
+    private int[] stmtAdded = new int[INITIAL_CAPACITY];
+    private int[] stmtDeleted = new int[INITIAL_CAPACITY];
+    private int[] churn = new int[INITIAL_CAPACITY];
+    private int[] distinctAuthors = new int[INITIAL_CAPACITY];
+    private int[] startLines = new int[INITIAL_CAPACITY];
+    private int[] endLines = new int[INITIAL_CAPACITY];
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int[][] smellIds = new int[INITIAL_CAPACITY][];
+    private MethodSource[] sources = new MethodSource[INITIAL_CAPACITY];
+    private final BitSet bugginess = new BitSet();
+
+    public int size() {
+        return size;
+    }
+
+    // Aggiunge una riga copiando i valori del MethodInfo, che poi può essere scartato; restituisce l'indice
+    public int add(MethodInfo info) {
+        if (size == methodIds.length) grow();
+        int row = size++;
+
+        projectIds[row] = projects.idOf(info.getProjectName());
+        methodIds[row] = methods.idOf(info.getMethodName());
+        releaseIds[row] = releaseId(info.getReleaseId(), info.getReleaseDate());
+        int[] values = info.getMetricValues();
+        for (int metric = 0; metric < metrics.length; metric++) {
+            metrics[metric][row] = values[metric];
+        }
+        numberOfSmells[row] = info.getNumberOfSmells();
+        methodHistories[row] = info.getMethodHistories();
+        stmtAdded[row] = info.getStmtAdded();
+        stmtDeleted[row] = info.getStmtDeleted();
+        churn[row] = info.getChurn();
+        distinctAuthors[row] = info.getDistinctAuthors();
+        startLines[row] = info.getStartLine();
+        endLines[row] = info.getEndLine();
+        fingerprints[row] = info.getFingerprint();
+        smellIds[row] = encodeSmells(info.getDetectedSmells());
+        sources[row] = info.getMethodSource();
+        bugginess.set(row, info.isBugginess());
+        return row;
+    }
+
+    private void grow() {
+        int capacity = methodIds.length * 2;
+        projectIds = Arrays.copyOf(projectIds, capacity);
+        methodIds = Arrays.copyOf(methodIds, capacity);
+        releaseIds = Arrays.copyOf(releaseIds, capacity);
+        for (int metric = 0; metric < metrics.length; metric++) {
+            metrics[metric] = Arrays.copyOf(metrics[metric], capacity);
+        }
+        numberOfSmells = Arrays.copyOf(numberOfSmells, capacity);
+        methodHistories = Arrays.copyOf(methodHistories, capacity);
+        stmtAdded = Arrays.copyOf(stmtAdded, capacity);
+        stmtDeleted = Arrays.copyOf(stmtDeleted, capacity);
+        churn = Arrays.copyOf(churn, capacity);
+        distinctAuthors = Arrays.copyOf(distinctAuthors, capacity);
+        startLines = Arrays.copyOf(startLines, capacity);
+        endLines = Arrays.copyOf(endLines, capacity);
+        fingerprints = Arrays.copyOf(fingerprints, capacity);
+        smellIds = Arrays.copyOf(smellIds, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+    }
+
+    private int releaseId(String release, LocalDate date) {
+        int id = releases.idOf(release);
+        if (id >= 0) {
+            while (releaseDates.size() <= id) releaseDates.add(null);
+            if (date != null) releaseDates.set(id, date);
+        }
+        return id;
+    }
+
+    private int[] encodeSmells(List<String> smells) {
+        if (smells == null || smells.isEmpty()) return NO_SMELLS;
+        int[] ids = new int[smells.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = smellNames.idOf(smells.get(i));
+        }
+        return ids;
+    }
+
+    // Vista MethodInfo di una riga
+    public MethodInfo row(int row) {
+        return new Row(row);
+    }
+
+    // Vista MethodInfo di tutte le righe
+    public List<MethodInfo> asList() {
+        return rows(0, size);
+    }
+
+    // Vista MethodInfo delle righe [from, to): resta ferma a quelle righe anche se la tabella cresce
+    public List<MethodInfo> rows(int from, int to) {
+        return new RowList(from, to);
+    }
+
+    // Release presenti nella tabella (almeno una riga)
+    public List<String> getReleaseNames() {
+        return releases.values();
+    }
+
+    // Accesso diretto alle colonne, senza creare viste
+
+    public String getProjectName(int row) { return projects.get(projectIds[row]); }
+
+    public String getMethodName(int row) { return methods.get(methodIds[row]); }
+
+    public String getReleaseId(int row) { return releases.get(releaseIds[row]); }
+
+    public int getMetric(int metric, int row) { return metrics[metric][row]; }
+
+    public int getNumberOfSmells(int row) { return numberOfSmells[row]; }
+
+    public int getMethodHistories(int row) { return methodHistories[row]; }
+
+    public int getStmtAdded(int row) { return stmtAdded[row]; }
+
+    public int getStmtDeleted(int row) { return stmtDeleted[row]; }
+
+    public int getChurn(int row) { return churn[row]; }
+
+    public int getDistinctAuthors(int row) { return distinctAuthors[row]; }
+
+    public boolean isBugginess(int row) { return bugginess.get(row); }
+
+    public void setBugginess(int row, boolean buggy) { bugginess.set(row, buggy); }
+
+    // Vista di una riga come MethodInfo: ogni accesso va alle colonne della tabella
+    private final class Row extends MethodInfo {
+        private final int index;
+
+        private Row(int index) {
+            super(MethodTable.this);
+            this.index = index;
+        }
+
+        @Override public String getProjectName() { return MethodTable.this.getProjectName(index); }
+        @Override public void setProjectName(String projectName) { projectIds[index] = projects.idOf(projectName); }
+
+        @Override public String getMethodName() { return MethodTable.this.getMethodName(index); }
+        @Override public void setMethodName(String methodName) { methodIds[index] = methods.idOf(methodName); }
+
+        @Override public String getReleaseId() { return MethodTable.this.getReleaseId(index); }
+        @Override public void setReleaseId(String releaseId) { releaseIds[index] = releaseId(releaseId, null); }
+
+        @Override public LocalDate getReleaseDate() {
+            int id = releaseIds[index];
+            return id < 0 || id >= releaseDates.size() ? null : releaseDates.get(id);
+        }
+        @Override public void setReleaseDate(LocalDate releaseDate) { releaseId(getReleaseId(), releaseDate); }
+
+        @Override public int getMetric(int metric) { return metrics[metric][index]; }
+        @Override public void setMetric(int metric, int value) { metrics[metric][index] = value; }
+
+        @Override public int[] getMetricValues() {
+            int[] values = new int[metrics.length];
+            for (int metric = 0; metric < metrics.length; metric++) {
+                values[metric] = metrics[metric][index];
+            }
+            return values;
+        }
+        @Override public void setMetricValues(int[] values) {
+            for (int metric = 0; metric < metrics.length; metric++) {
+                metrics[metric][index] = values[metric];
+            }
+        }
+
+        @Override public int getNumberOfSmells() { return numberOfSmells[index]; }
+        @Override public void setNumberOfSmells(int value) { numberOfSmells[index] = value; }
+
+        @Override public int getMethodHistories() { return methodHistories[index]; }
+        @Override public void setMethodHistories(int value) { methodHistories[index] = value; }
+
+        @Override public int getStmtAdded() { return stmtAdded[index]; }
+        @Override public void setStmtAdded(int value) { stmtAdded[index] = value; }
+
+        @Override public int getStmtDeleted() { return stmtDeleted[index]; }
+        @Override public void setStmtDeleted(int value) { stmtDeleted[index] = value; }
+
+        @Override public int getChurn() { return churn[index]; }
+        @Override public void setChurn(int value) { churn[index] = value; }
+
+        @Override public int getDistinctAuthors() { return distinctAuthors[index]; }
+        @Override public void setDistinctAuthors(int value) { distinctAuthors[index] = value; }
+
+        @Override public int getStartLine() { return startLines[index]; }
+        @Override public void setStartLine(int value) { startLines[index] = value; }
+
+        @Override public int getEndLine() { return endLines[index]; }
+        @Override public void setEndLine(int value) { endLines[index] = value; }
+
+        @Override public long getFingerprint() { return fingerprints[index]; }
+        @Override public void setFingerprint(long value) { fingerprints[index] = value; }
+
+        @Override public boolean isBugginess() { return bugginess.get(index); }
+        @Override public void setBugginess(boolean value) { bugginess.set(index, value); }
+
+        @Override public MethodSource getMethodSource() { return sources[index]; }
+        @Override public void setMethodSource(MethodSource source) { sources[index] = source; }
+
+        // Copia dei nomi: modificare la lista non cambia la tabella (serve setDetectedSmells)
+        @Override public List<String> getDetectedSmells() {
+            int[] ids = smellIds[index];
+            List<String> names = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                names.add(smellNames.get(id));
+            }
+            return names;
+        }
+        @Override public void setDetectedSmells(List<String> smells) { smellIds[index] = encodeSmells(smells); }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row row && row.index == index && row.table() == MethodTable.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        private MethodTable table() {
+            return MethodTable.this;
+        }
+    }
+
+    private final class RowList extends AbstractList<MethodInfo> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        private RowList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public MethodInfo get(int i) {
+            if (i < 0 || i >= to - from) throw new IndexOutOfBoundsException(i);
+            return new Row(from + i);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    // Stringhe codificate come interi; null ha id -1
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int idOf(String value) {
+            if (value == null) return -1;
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        private String get(int id) {
+            return id < 0 ? null : values.get(id);
+        }
+
+        private List<String> values() {
+            return Collections.unmodifiableList(values);
+        }
+    }
+}
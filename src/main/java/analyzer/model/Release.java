@@ -28,6 +28,15 @@ public class Release {
 
     public void setReleased(boolean released) { this.released = released; }
 
+    // Nome canonico di una versione, come lo usano indici e ticket: "4.1" --> "4.1.0"
+    public static String normalizeVersionName(String name) {
+        if (name == null) return null;
+        if (name.matches("\\d+\\.\\d+")) {
+            return name + ".0";
+        }
+        return name;
+    }
+
     @Override
     public String toString() {
         return name + " (" + releaseDate + ")";
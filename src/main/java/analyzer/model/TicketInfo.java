@@ -2,7 +2,9 @@ package analyzer.model;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class TicketInfo {
     private final String id;
@@ -16,6 +18,10 @@ public class TicketInfo {
     private final List<String> fixVersionNames = new ArrayList<>();
     private final List<LocalDate> fixVersionDates = new ArrayList<>();
     private final List<String> commitIds = new ArrayList<>();
+    // Versioni hash di commitIds/fixedFiles + autori dei commit collegati, per lookup O(1) nell'euristica di linkage
+    private final Set<String> commitIdSet = new HashSet<>();
+    private final Set<String> fixedFileSet = new HashSet<>();
+    private final Set<String> commitAuthors = new HashSet<>();
 
     public TicketInfo(String id) {
         this.id = id;
@@ -26,7 +32,15 @@ public class TicketInfo {
     public List<LocalDate> getFixVersionDates() { return fixVersionDates; }
 
     public List<String> getCommitIds() { return commitIds; }
-    public void addCommitId(String commitId) { this.commitIds.add(commitId); }
+    public void addCommitId(String commitId) {
+        this.commitIds.add(commitId);
+        this.commitIdSet.add(commitId);
+    }
+    public boolean containsCommitId(String commitId) { return commitIdSet.contains(commitId); }
+
+    public Set<String> getCommitAuthors() { return commitAuthors; }
+    public void addCommitAuthor(String author) { this.commitAuthors.add(author); }
+    public boolean hasCommitAuthor(String author) { return commitAuthors.contains(author); }
 
     public void addFixVersion(String name, LocalDate date) {
         this.fixVersionNames.add(name);
@@ -47,7 +61,11 @@ public class TicketInfo {
     public List<String> getAffectedMethods() { return affectedMethods; }
 
     public void addAffectedVersion(String version) { affectedVersions.add(version); }
-    public void addFixedFile(String file) { fixedFiles.add(file); }
+    public void addFixedFile(String file) {
+        fixedFiles.add(file);
+        fixedFileSet.add(file);
+    }
+    public boolean containsFixedFile(String file) { return fixedFileSet.contains(file); }
     public void addAffectedMethod(String method) { affectedMethods.add(method); }
 
     public String getFixVersionName() { return fixVersionName; }
@@ -9,6 +9,19 @@ public class Configuration {
     public static final boolean BASIC_DEBUG = true;
     public static final boolean ACTIVATE_LOG = false;
     public static final boolean LABELING_DEBUG = false;
+    public static final boolean USE_RELEASE_SNAPSHOT = true; // legge le release dall'object database invece di fare checkout
+    public static final int DIFF_CACHE_SIZE = 4096; // numero massimo di commit tenuti nella cache dei diff
+    public static final boolean USE_METRIC_CACHE = true; // riusa le metriche statiche dei file con blob invariato tra release
+    public static final int PMD_THREADS = Runtime.getRuntime().availableProcessors(); // thread dell'analisi PMD di ogni release
+    public static final int ANALYSIS_THREADS = Runtime.getRuntime().availableProcessors(); // worker per parsing e metriche dei file (1 = sequenziale)
+    public static final boolean JAVA_ONLY_DIFF = true; // diff limitati ai sorgenti .java (no test/target), rename detection su richiesta
+    public static final int DIFF_RENAME_LIMIT = 400; // massimo di file ADD/DELETE confrontati dalla rename detection (default di git)
+    public static final boolean PMD_ANALYSIS_CACHE = true; // cache incrementale di PMD, salvata per release accanto al repository
+    public static final boolean PMD_PROFILE = false; // stampa per ogni release tempi e violazioni di ogni regola PMD (con PMD_ANALYSIS_CACHE i tempi coprono solo i file non in cache)
+    public static final boolean PMD_CURATED_RULESET = false; // usa pmd/curated-ruleset.xml (senza le regole che nel profilo PMD non segnalano nessun metodo)
+    public static final long FILE_TIME_BUDGET_MS = 10_000; // tempo CPU di parsing + PMD oltre cui un file va in quarantena (0 = quarantena disattivata)
+    public static final int SLOWEST_FILES_REPORTED = 10; // file più lenti stampati a fine release
+    public static final HistoryEngine HISTORY_ENGINE = HistoryEngine.DIFF; // DIFF (diff per commit) o BLAME (blame per release)
 
     public static final Logger logger = Logger.getLogger(Configuration.class.getName());
 
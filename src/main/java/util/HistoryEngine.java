@@ -0,0 +1,7 @@
+package util;
+
+// Motore usato per le metriche storiche dei metodi
+public enum HistoryEngine {
+    DIFF, // diff commit/genitore mappati sulle righe dei metodi, cumulati tra release
+    BLAME // blame del file alla release: commit e autori delle righe di ogni metodo
+}
@@ -106,13 +106,15 @@ public class RefactorPredictor {
     private static void cleanCsvFile(String sourcePath, String destPath) throws Exception {
         List<String> lines = Files.readAllLines(Paths.get(sourcePath));
         List<String> cleanedLines = new ArrayList<>();
-        String correctHeader = "Method;LOC;CyclomaticComplexity;CognitiveComplexity;ParameterCount;NestingDepth;StatementCount;ReturnTypeComplexity;LocalVariableCount;Number of Smells";
-        cleanedLines.add(correctHeader);
+        // Tiene le colonne prima di SmellTypes (ultima, con ';' dentro): i nomi sono già quelli del dataset
+        List<String> header = Arrays.asList(lines.get(0).split(";"));
+        int columns = header.contains("SmellTypes") ? header.indexOf("SmellTypes") : header.size();
+        cleanedLines.add(String.join(";", header.subList(0, columns)));
 
         for (int i = 1; i < lines.size(); i++) {
             String[] parts = lines.get(i).split(";");
-            if (parts.length >= 10) {
-                cleanedLines.add(String.join(";", Arrays.copyOfRange(parts, 0, 10)));
+            if (parts.length >= columns) {
+                cleanedLines.add(String.join(";", Arrays.copyOfRange(parts, 0, columns)));
             }
         }
         Files.write(Paths.get(destPath), cleanedLines);